@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+// Non-blocking access to a DBOReader. The queries of one reader run one after another in the order they
+// were requested, since the reader streams its results over a single connection. Parsing and everything
+// the caller chains onto the futures runs on the executor in parallel to the next queries.
+class AsyncDBOReader
+{
+	private final DBOReader reader;
+	private final Executor executor;
+	private CompletableFuture<?> lastQuery = CompletableFuture.completedFuture(null);
+
+	public AsyncDBOReader(DBOReader reader, Executor executor)
+	{
+		this.reader = reader;
+		this.executor = executor;
+	}
+
+	public DBOReader getReader()
+	{
+		return reader;
+	}
+
+	public CompletableFuture<SchemaCatalog> readCatalog(String databaseName)
+	{
+		return query(() -> reader.readCatalog(databaseName));
+	}
+
+	public CompletableFuture<HashMap<String, String>> readTableDigests(String databaseName)
+	{
+		return query(() -> reader.readTableDigests(databaseName));
+	}
+
+	public Map<String, CompletableFuture<CreateTableParser.Result>> readTables(SchemaCatalog catalog)
+	{
+		return readTables(catalog, null);
+	}
+
+	public Map<String, CompletableFuture<CreateTableParser.Result>> readTables(SchemaCatalog catalog,
+		Set<String> tableNames)
+	{
+		// keyed by the lower case table name in catalog order, each table completes as soon as its own
+		// slice is fetched and parsed
+		List<SchemaCatalog.Entry> entries = new ArrayList<>();
+		for (SchemaCatalog.Entry entry : catalog.getTables())
+		{
+			if (tableNames == null || tableNames.contains(entry.getName().toLowerCase()))
+				entries.add(entry);
+		}
+
+		final int sliceSize = Math.max(1, reader.getBatchSize() * reader.getConnectionCount());
+		CompletableFuture<Collations> collations = query(reader::getCollations);
+		LinkedHashMap<String, CompletableFuture<CreateTableParser.Result>> output = new LinkedHashMap<>();
+		for (int start = 0; start < entries.size(); start += sliceSize)
+		{
+			List<SchemaCatalog.Entry> slice = entries.subList(start, Math.min(entries.size(), start + sliceSize));
+			Set<String> sliceNames = new HashSet<>();
+			slice.forEach((entry) -> sliceNames.add(entry.getName().toLowerCase()));
+
+			SchemaCatalog sliceCatalog = catalog.filterTables(sliceNames);
+			CompletableFuture<List<String>> statements = query(() -> reader.readCreateTableStatements(sliceCatalog));
+
+			int index = 0;
+			for (SchemaCatalog.Entry entry : sliceCatalog.getTables())
+			{
+				final int statementIndex = index++;
+				output.put(entry.getName().toLowerCase(), statements.thenCombineAsync(collations,
+					(list, defaults) -> parse(entry.getName(), list.get(statementIndex), defaults), executor));
+			}
+		}
+		return output;
+	}
+
+	public CompletableFuture<NamedObjectList<ViewInfo>> readViews(SchemaCatalog catalog)
+	{
+		return query(() -> reader.readViews(catalog));
+	}
+
+	public CompletableFuture<NamedObjectList<ProcedureInfo>> readProcedures(SchemaCatalog catalog)
+	{
+		return query(() -> reader.readPlannedProcedures(catalog));
+	}
+
+	public CompletableFuture<NamedObjectList<TriggerInfo>> readTriggers(SchemaCatalog catalog)
+	{
+		return query(() -> reader.readTriggers(catalog.getDatabaseName()));
+	}
+
+	public CompletableFuture<NamedObjectList<ForeignKeyInfo>> readForeignKeys(SchemaCatalog catalog)
+	{
+		return query(() -> reader.readForeignKeys(catalog.getDatabaseName()));
+	}
+
+	public CompletableFuture<NamedObjectList<PartitionInfo>> readPartitions(SchemaCatalog catalog)
+	{
+		return query(() -> reader.readPartitions(catalog.getDatabaseName()));
+	}
+
+	public CompletableFuture<SchemaModel> readSchema(String databaseName)
+	{
+		return readCatalog(databaseName).thenCompose(this::readSchema);
+	}
+
+	public CompletableFuture<SchemaModel> readSchema(SchemaCatalog catalog)
+	{
+		if (reader.getCache() != null)
+		{
+			// the cache decides per table whether it is fetched at all
+			return query(() -> reader.readSchema(catalog));
+		}
+
+		// every object type completes with its own queries, the model is built when the last one is done
+		CompletableFuture<TableDetails> tables = reader.isChildrenFromCreateStatement()
+			? readParsedTables(catalog)
+			: readPlannedTables(catalog);
+		CompletableFuture<NamedObjectList<ViewInfo>> views = readViews(catalog);
+		CompletableFuture<NamedObjectList<ProcedureInfo>> procedures = readProcedures(catalog);
+		CompletableFuture<NamedObjectList<TriggerInfo>> triggers = readTriggers(catalog);
+		CompletableFuture<NamedObjectList<ForeignKeyInfo>> foreignKeys = readForeignKeys(catalog);
+		CompletableFuture<NamedObjectList<PartitionInfo>> partitions = readPartitions(catalog);
+
+		// all parts are complete when the model is built, so join() does not block
+		return CompletableFuture.allOf(tables, views, procedures, triggers, foreignKeys, partitions).thenApply(
+			(ignored) -> new SchemaModel(catalog, tables.join().tables, tables.join().fields, tables.join().keys,
+				views.join(), procedures.join(), triggers.join(), foreignKeys.join(), partitions.join()));
+	}
+
+	private CompletableFuture<TableDetails> readParsedTables(SchemaCatalog catalog)
+	{
+		// SHOW CREATE TABLE per table, the parsing overlaps with the next statements
+		Map<String, CompletableFuture<CreateTableParser.Result>> parsedTables = readTables(catalog);
+		CompletableFuture<?>[] parts = parsedTables.values().toArray(new CompletableFuture<?>[0]);
+		return CompletableFuture.allOf(parts).thenApply((ignored) ->
+		{
+			TableDetails details = new TableDetails();
+			for (Map.Entry<String, CompletableFuture<CreateTableParser.Result>> entry : parsedTables.entrySet())
+			{
+				CreateTableParser.Result parsed = entry.getValue().join();
+				details.tables.add(parsed.getTableInfo());
+				details.fields.put(entry.getKey(), parsed.getFields());
+				details.keys.put(entry.getKey(), parsed.getKeys());
+			}
+			return details;
+		});
+	}
+
+	private CompletableFuture<TableDetails> readPlannedTables(SchemaCatalog catalog)
+	{
+		// the table options from SHOW CREATE TABLE, the columns and keys from information_schema as planned
+		CompletableFuture<NamedObjectList<TableInfo>> tables = query(() -> reader.readTables(catalog));
+		CompletableFuture<TableDetails> children = query(() ->
+		{
+			TableDetails details = new TableDetails();
+			reader.readPlannedTableChildren(catalog, details.fields, details.keys);
+			return details;
+		});
+		return tables.thenCombine(children, (tableList, details) ->
+		{
+			tableList.forEach(details.tables::add);
+			return details;
+		});
+	}
+
+	private synchronized <T> CompletableFuture<T> query(Callable<T> query)
+	{
+		// queued behind the previous query whether that one failed or not
+		CompletableFuture<T> future = lastQuery.handle((result, e) -> (Void)null)
+			.thenApplyAsync((ignored) -> call(query), executor);
+		lastQuery = future;
+		return future;
+	}
+
+	private static <T> T call(Callable<T> query)
+	{
+		try
+		{
+			return query.call();
+		}
+		catch (Exception e)
+		{
+			throw new CompletionException(e);
+		}
+	}
+
+	private static CreateTableParser.Result parse(String name, String createStatement, Collations collations)
+	{
+		try
+		{
+			return CreateTableParser.parse(name, createStatement, collations);
+		}
+		catch (SQLException e)
+		{
+			throw new CompletionException(e);
+		}
+	}
+
+	private static class TableDetails
+	{
+		private final NamedObjectList<TableInfo> tables = new NamedObjectList<>();
+		private final HashMap<String, NamedObjectList<FieldInfo>> fields = new HashMap<>();
+		private final HashMap<String, HashMap<String, KeyInfo>> keys = new HashMap<>();
+	}
+}
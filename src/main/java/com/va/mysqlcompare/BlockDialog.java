@@ -15,7 +15,9 @@
  */
 package com.va.mysqlcompare;
 
+import java.awt.BorderLayout;
 import java.awt.Window;
+import javax.swing.JButton;
 import javax.swing.SwingUtilities;
 
 public class BlockDialog extends javax.swing.JDialog
@@ -29,6 +31,25 @@ public class BlockDialog extends javax.swing.JDialog
 		initComponents();
 	}
 
+	public void setCancelAction(Runnable cancelAction)
+	{
+		JButton cancelButton = new JButton("Cancel");
+		cancelButton.addActionListener((evt) ->
+		{
+			cancelButton.setEnabled(false);
+			jLabel1.setText("Cancelling ...");
+			// cancelling talks to the server, which must not block the event thread
+			new Thread(cancelAction).start();
+		});
+
+		jPanel1.removeAll();
+		jPanel1.setLayout(new BorderLayout(5, 5));
+		jPanel1.add(jLabel1, BorderLayout.CENTER);
+		jPanel1.add(cancelButton, BorderLayout.SOUTH);
+		setPreferredSize(new java.awt.Dimension(200, 100));
+		pack();
+	}
+
 	public void showAsync()
 	{
 		SwingUtilities.invokeLater(() ->
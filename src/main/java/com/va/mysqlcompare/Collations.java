@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+// The default collation of each character set. SHOW CREATE TABLE leaves out a collation which is the
+// default of its character set, while information_schema always names it, so the parser resolves the
+// missing ones with the defaults of the server the statement is compared against.
+public class Collations
+{
+	// MySQL 5.7, character sets which are not listed default to <charset>_general_ci
+	private static final String[][] DEFAULTS_57 = {
+		{ "big5", "big5_chinese_ci" },
+		{ "binary", "binary" },
+		{ "cp932", "cp932_japanese_ci" },
+		{ "dec8", "dec8_swedish_ci" },
+		{ "eucjpms", "eucjpms_japanese_ci" },
+		{ "euckr", "euckr_korean_ci" },
+		{ "gb18030", "gb18030_chinese_ci" },
+		{ "gb2312", "gb2312_chinese_ci" },
+		{ "gbk", "gbk_chinese_ci" },
+		{ "hp8", "hp8_english_ci" },
+		{ "latin1", "latin1_swedish_ci" },
+		{ "latin5", "latin5_turkish_ci" },
+		{ "sjis", "sjis_japanese_ci" },
+		{ "swe7", "swe7_swedish_ci" },
+		{ "tis620", "tis620_thai_ci" },
+		{ "ujis", "ujis_japanese_ci" },
+	};
+
+	// for statements without a server, 8.0 always writes its utf8mb4_0900_ai_ci default itself
+	public static final Collations DEFAULT = new Collations(DEFAULTS_57);
+
+	private final TreeMap<String, String> defaults = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+	private Collations(String[][] defaults)
+	{
+		for (String[] entry : defaults)
+		{
+			this.defaults.put(entry[0], entry[1]);
+		}
+	}
+
+	// character set to collation as in information_schema.COLLATIONS WHERE IS_DEFAULT = 'Yes'
+	Collations(Map<String, String> defaults)
+	{
+		this.defaults.putAll(defaults);
+	}
+
+	public String getDefault(String charset)
+	{
+		String collation = defaults.get(charset);
+		return collation != null ? collation : charset.toLowerCase() + "_general_ci";
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return defaults.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (obj == null || getClass() != obj.getClass())
+		{
+			return false;
+		}
+		return Objects.equals(this.defaults, ((Collations)obj).defaults);
+	}
+}
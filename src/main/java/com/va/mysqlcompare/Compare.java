@@ -17,78 +17,432 @@ package com.va.mysqlcompare;
 
 import com.va.mysqlcompare.CompareResult.Diff;
 import com.va.mysqlcompare.CompareResult.FieldDiff;
+import com.va.mysqlcompare.CompareResult.ForeignKeyDiff;
 import com.va.mysqlcompare.CompareResult.KeyDiff;
+import com.va.mysqlcompare.CompareResult.PartitionDiff;
 import com.va.mysqlcompare.CompareResult.ProcedureDiff;
 import com.va.mysqlcompare.CompareResult.TableDiff;
+import com.va.mysqlcompare.CompareResult.TriggerDiff;
 import com.va.mysqlcompare.CompareResult.ViewDiff;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class Compare
+public class Compare implements AutoCloseable
 {
 	private static final Logger LOG = LoggerFactory.getLogger(Compare.class);
 
 	private final ConnectionsManager conManager;
+	private boolean twoPhase = false;
+	private boolean lazy = false;
+	private ObjectFilter filter = new ObjectFilter();
+	private MetadataCache cache;
+	private SchemaSource sourceA;
+	private SchemaSource sourceB;
+	private State lazyState;
+	private State sourceState;
+	private volatile State activeState;
+	private volatile boolean cancelled = false;
 
 	public Compare(ConnectionsManager conManager)
 	{
 		this.conManager = conManager;
 	}
 
+	public boolean isTwoPhase()
+	{
+		return twoPhase;
+	}
+
+	public void setTwoPhase(boolean twoPhase)
+	{
+		this.twoPhase = twoPhase;
+	}
+
+	public boolean isLazy()
+	{
+		return lazy;
+	}
+
+	public void setLazy(boolean lazy)
+	{
+		this.lazy = lazy;
+	}
+
+	public ObjectFilter getFilter()
+	{
+		return filter;
+	}
+
+	public void setFilter(ObjectFilter filter)
+	{
+		this.filter = filter;
+	}
+
+	public MetadataCache getCache()
+	{
+		return cache;
+	}
+
+	public void setCache(MetadataCache cache)
+	{
+		this.cache = cache;
+	}
+
+	public SchemaSource getSourceA()
+	{
+		return sourceA;
+	}
+
+	public void setSourceA(SchemaSource sourceA)
+	{
+		// the side is read from the source instead of the server, the database name is ignored
+		this.sourceA = sourceA;
+	}
+
+	public SchemaSource getSourceB()
+	{
+		return sourceB;
+	}
+
+	public void setSourceB(SchemaSource sourceB)
+	{
+		this.sourceB = sourceB;
+	}
+
+	public boolean isCancelled()
+	{
+		return cancelled;
+	}
+
+	public void cancel()
+	{
+		cancelled = true;
+
+		State state = activeState;
+		if (state != null)
+		{
+			for (DBOReader reader : state.getReaders())
+			{
+				reader.cancel();
+			}
+		}
+	}
+
 	public CompareResult doCompare(String databaseA, String databaseB) throws Exception
 	{
-		State state = new State(conManager, databaseA, databaseB);
+		close();
+
+		State state = new State(conManager, sourceA != null ? sourceA.getName() : databaseA,
+			sourceB != null ? sourceB.getName() : databaseB, sourceA, sourceB);
+		for (DBOReader reader : state.getReaders())
+		{
+			reader.setFilter(filter);
+		}
+		if (cache != null)
+		{
+			// each server decides for itself whether its metadata may be kept on disk
+			if (state.readerA != null && conManager.getServerA().isMetadataCache())
+				state.readerA.setCache(cache, getServerId(conManager.getServerA()));
+			if (state.readerB != null && conManager.getServerB().isMetadataCache())
+				state.readerB.setCache(cache, getServerId(conManager.getServerB()));
+		}
+		activeState = state;
+		if (cancelled)
+			cancel();
+
+		// both sides use their own connection, so they can be read at the same time
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+		try
+		{
+			if (sourceA != null || sourceB != null)
+			{
+				// a script compared against a server gets the defaults that server would give it when loading it
+				if (sourceA != null && sourceB == null)
+					sourceA.setCollations(state.getReader(Side.B).getCollations());
+				else if (sourceB != null && sourceA == null)
+					sourceB.setCollations(state.getReader(Side.A).getCollations());
+
+				// without a server on both sides there are no digests, so the other side is read completely
+				Future<SchemaModel> schemaA = executor.submit(() -> sourceA != null
+					? sourceA.readSchema() : state.getReader(Side.A).readSchema(databaseA));
+				Future<SchemaModel> schemaB = executor.submit(() -> sourceB != null
+					? sourceB.readSchema() : state.getReader(Side.B).readSchema(databaseB));
+
+				// a server side is already filtered by its queries
+				state.schemaA = sourceA != null ? getResult(schemaA).filter(filter) : getResult(schemaA);
+				state.schemaB = sourceB != null ? getResult(schemaB).filter(filter) : getResult(schemaB);
+				// kept for recompare(), the server side is not read again then
+				sourceState = state;
+			}
+			else if (lazy)
+			{
+				readSchemasLazy(state, executor);
+				// the readers are needed again to load the details of the pending tables
+				lazyState = state;
+			}
+			else if (twoPhase)
+			{
+				readSchemasTwoPhase(state, executor);
+			}
+			else
+			{
+				// the queries of a side run one after another, the results are processed while the next ones are read
+				AsyncDBOReader readerA = new AsyncDBOReader(state.getReader(Side.A), executor);
+				AsyncDBOReader readerB = new AsyncDBOReader(state.getReader(Side.B), executor);
+				Future<SchemaModel> schemaA = readerA.readSchema(databaseA);
+				Future<SchemaModel> schemaB = readerB.readSchema(databaseB);
+
+				state.schemaA = getResult(schemaA);
+				state.schemaB = getResult(schemaB);
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+			if (lazyState != state)
+			{
+				activeState = null;
+				state.close();
+			}
+		}
 
 		compareTables(state);
 		compareViews(state);
 		compareProcedures(state);
+		compareTriggers(state);
+		compareForeignKeys(state);
+		comparePartitions(state);
 
 		return state.compareResult;
 	}
 
-	private void compareTables(State state) throws SQLException
+	public synchronized CompareResult recompare() throws Exception
 	{
-		NamedObjectList<TableInfo> tables1 = state.getReader(Side.A).readTables(state.getDatabase(Side.A));
-		NamedObjectList<TableInfo> tables2 = state.getReader(Side.B).readTables(state.getDatabase(Side.B));
+		State previous = sourceState;
+		if (previous == null)
+			throw new IllegalStateException("No compare with a schema source was done");
 
-		for (TableInfo tableInfo : tables1)
+		// the sources only parse what changed since the last read, so only the diff is computed in full
+		State state = new State(previous.databaseA, previous.databaseB,
+			sourceA != null ? sourceA.readSchema().filter(filter) : previous.schemaA,
+			sourceB != null ? sourceB.readSchema().filter(filter) : previous.schemaB);
+
+		compareTables(state);
+		compareViews(state);
+		compareProcedures(state);
+		compareTriggers(state);
+		compareForeignKeys(state);
+		comparePartitions(state);
+
+		sourceState = state;
+		return state.compareResult;
+	}
+
+	public Map<TableDiff, List<Diff>> loadTableDetails(Collection<TableDiff> tableDiffs) throws Exception
+	{
+		State state = lazyState;
+		if (state == null)
+			throw new IllegalStateException("No lazy compare is open");
+
+		HashSet<String> namesA = new HashSet<>();
+		HashSet<String> namesB = new HashSet<>();
+		for (TableDiff tableDiff : tableDiffs)
 		{
-			if (tables2.contains(tableInfo.getName()))
+			if (tableDiff.getTableInfoA() != null)
+				namesA.add(tableDiff.getTableInfoA().getName().toLowerCase());
+			if (tableDiff.getTableInfoB() != null)
+				namesB.add(tableDiff.getTableInfoB().getName().toLowerCase());
+		}
+
+		SchemaModel schema1;
+		SchemaModel schema2;
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try
+		{
+			Future<SchemaModel> schemaA = executor.submit(() ->
+				state.getReader(Side.A).readTableDetails(state.getSchema(Side.A).getCatalog(), namesA));
+			Future<SchemaModel> schemaB = executor.submit(() ->
+				state.getReader(Side.B).readTableDetails(state.getSchema(Side.B).getCatalog(), namesB));
+
+			schema1 = getResult(schemaA);
+			schema2 = getResult(schemaB);
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+
+		LinkedHashMap<TableDiff, List<Diff>> output = new LinkedHashMap<>();
+		for (TableDiff tableDiff : tableDiffs)
+		{
+			TableInfo tableInfo = tableDiff.getTableInfoA() != null
+				? schema1.getTables().get(tableDiff.getTableInfoA().getName()) : null;
+			TableInfo tableInfo2 = tableDiff.getTableInfoB() != null
+				? schema2.getTables().get(tableDiff.getTableInfoB().getName()) : null;
+
+			CompareResult details = new CompareResult(state.databaseA, state.databaseB);
+			if (tableInfo != null && tableInfo2 != null)
 			{
-				boolean tableChildrenEquals = true;
+				compareTable(details, schema1, schema2, tableInfo, tableInfo2);
+			}
+			else if (tableInfo != null)
+			{
+				details.addDiff(new TableDiff(Diff.Mode.LEFT_ONLY, tableInfo, null));
+			}
+			else if (tableInfo2 != null)
+			{
+				details.addDiff(new TableDiff(Diff.Mode.RIGHT_ONLY, null, tableInfo2));
+			}
+			output.put(tableDiff, details.getDiffs());
+		}
+		return output;
+	}
 
-				TableInfo tableInfo2 = tables2.get(tableInfo.getName());
+	@Override
+	public void close() throws SQLException
+	{
+		if (lazyState != null)
+		{
+			lazyState.close();
+			lazyState = null;
+			activeState = null;
+		}
+	}
 
-				if (!compareFields(state, tableInfo.getName(), tableInfo2.getName()))
-				{
-					tableChildrenEquals = false;
-				}
+	private void readSchemasLazy(State state, ExecutorService executor) throws Exception
+	{
+		// all tables come from the catalog, the tables on both sides whose digests differ are left pending
+		Future<DigestedCatalog> catalogA = readDigestedCatalog(executor, state, Side.A);
+		Future<DigestedCatalog> catalogB = readDigestedCatalog(executor, state, Side.B);
 
-				if (!compareKeys(state, tableInfo.getName(), tableInfo2.getName()))
-				{
-					tableChildrenEquals = false;
-				}
+		SchemaCatalog catalog1 = getResult(catalogA).catalog;
+		SchemaCatalog catalog2 = getResult(catalogB).catalog;
+		HashMap<String, String> digests1 = getResult(catalogA).digests;
+		HashMap<String, String> digests2 = getResult(catalogB).digests;
+
+		// a table of one side only is already known to differ, it is read now for its create statement
+		Set<String> onlyTables1 = getOneSidedTables(catalog1, catalog2);
+		Set<String> onlyTables2 = getOneSidedTables(catalog2, catalog1);
+
+		state.pendingTables.addAll(getDetailTables(catalog1, digests1, digests2));
+		state.pendingTables.addAll(getDetailTables(catalog2, digests2, digests1));
+		state.pendingTables.removeAll(onlyTables1);
+		state.pendingTables.removeAll(onlyTables2);
+
+		Future<SchemaModel> schemaA = executor.submit(() -> state.getReader(Side.A).readSchema(catalog1, onlyTables1));
+		Future<SchemaModel> schemaB = executor.submit(() -> state.getReader(Side.B).readSchema(catalog2, onlyTables2));
+
+		state.schemaA = getResult(schemaA);
+		state.schemaB = getResult(schemaB);
+	}
+
+	private void readSchemasTwoPhase(State state, ExecutorService executor) throws Exception
+	{
+		// first only a digest per table is transferred, details are read for the tables which do not match
+		Future<DigestedCatalog> catalogA = readDigestedCatalog(executor, state, Side.A);
+		Future<DigestedCatalog> catalogB = readDigestedCatalog(executor, state, Side.B);
+
+		SchemaCatalog catalog1 = getResult(catalogA).catalog;
+		SchemaCatalog catalog2 = getResult(catalogB).catalog;
+		HashMap<String, String> digests1 = getResult(catalogA).digests;
+		HashMap<String, String> digests2 = getResult(catalogB).digests;
+
+		Set<String> detailTables1 = getDetailTables(catalog1, digests1, digests2);
+		Set<String> detailTables2 = getDetailTables(catalog2, digests2, digests1);
+
+		LOG.debug("Reading details of {} tables in A and {} tables in B", detailTables1.size(), detailTables2.size());
+
+		Future<SchemaModel> schemaA = executor.submit(() -> state.getReader(Side.A).readSchema(catalog1, detailTables1));
+		Future<SchemaModel> schemaB = executor.submit(() -> state.getReader(Side.B).readSchema(catalog2, detailTables2));
+
+		state.schemaA = getResult(schemaA);
+		state.schemaB = getResult(schemaB);
+	}
+
+	private Future<DigestedCatalog> readDigestedCatalog(ExecutorService executor, State state, Side side)
+	{
+		// one after the other, the reader has a single connection for both and is not thread safe
+		return executor.submit(() ->
+		{
+			DBOReader reader = state.getReader(side);
+			SchemaCatalog catalog = reader.readCatalog(state.getDatabase(side));
+			return new DigestedCatalog(catalog, reader.readTableDigests(state.getDatabase(side)));
+		});
+	}
+
+	private Set<String> getDetailTables(SchemaCatalog catalog, HashMap<String, String> digests,
+		HashMap<String, String> otherDigests)
+	{
+		HashSet<String> output = new HashSet<>();
+		for (SchemaCatalog.Entry entry : catalog.getTables())
+		{
+			String name = entry.getName().toLowerCase();
+			String digest = digests.get(name);
+			if (digest == null || !digest.equals(otherDigests.get(name)))
+				output.add(name);
+		}
+		return output;
+	}
+
+	private Set<String> getOneSidedTables(SchemaCatalog catalog, SchemaCatalog otherCatalog)
+	{
+		HashSet<String> output = new HashSet<>();
+		for (SchemaCatalog.Entry entry : catalog.getTables())
+		{
+			if (!otherCatalog.getTables().contains(entry.getName()))
+				output.add(entry.getName().toLowerCase());
+		}
+		return output;
+	}
+
+	private <T> T getResult(Future<T> future) throws Exception
+	{
+		try
+		{
+			return future.get();
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof Exception)
+				throw (Exception)e.getCause();
+			throw e;
+		}
+	}
+
+	private void compareTables(State state)
+	{
+		SchemaModel schema1 = state.getSchema(Side.A);
+		SchemaModel schema2 = state.getSchema(Side.B);
+		NamedObjectList<TableInfo> tables1 = schema1.getTables();
+		NamedObjectList<TableInfo> tables2 = schema2.getTables();
 
-				if (tableChildrenEquals)
+		for (TableInfo tableInfo : tables1)
+		{
+			if (tables2.contains(tableInfo.getName()))
+			{
+				TableInfo tableInfo2 = tables2.get(tableInfo.getName());
+
+				if (state.pendingTables.contains(tableInfo.getName().toLowerCase()))
 				{
-					if (!tableInfo.equals(tableInfo2))
-					{
-						state.compareResult.addDiff(new TableDiff(Diff.Mode.DIFFERENT, tableInfo, tableInfo2));
-
-						LOG.debug("Table {} differs in A and B", tableInfo.getName());
-					}
-					else
-					{
-						state.compareResult.addDiff(new TableDiff(Diff.Mode.EQUAL, tableInfo, tableInfo2));
-					}
+					state.compareResult.addDiff(new TableDiff(Diff.Mode.PENDING, tableInfo, tableInfo2));
 				}
 				else
 				{
-					state.compareResult.addDiff(new TableDiff(Diff.Mode.CHILDREN_DIFFER, tableInfo, tableInfo2));
+					compareTable(state.compareResult, schema1, schema2, tableInfo, tableInfo2);
 				}
 			}
 			else
@@ -110,10 +464,54 @@ public class Compare
 		}
 	}
 
-	private void compareViews(State state) throws SQLException
+	private void compareTable(CompareResult output, SchemaModel schema1, SchemaModel schema2, TableInfo tableInfo,
+		TableInfo tableInfo2)
+	{
+		if (!schema1.isDetailed(tableInfo.getName()) || !schema2.isDetailed(tableInfo2.getName()))
+		{
+			// digests matched, so only the table itself can differ (e.g. in the case of its name)
+			output.addDiff(new TableDiff(tableInfo.equals(tableInfo2) ? Diff.Mode.EQUAL :
+				Diff.Mode.DIFFERENT, tableInfo, tableInfo2));
+			return;
+		}
+
+		boolean tableChildrenEquals = true;
+
+		if (!compareFields(output, tableInfo.getName(), tableInfo2.getName(),
+			schema1.getFields(tableInfo.getName()), schema2.getFields(tableInfo2.getName())))
+		{
+			tableChildrenEquals = false;
+		}
+
+		if (!compareKeys(output, tableInfo.getName(), tableInfo2.getName(),
+			schema1.getKeys(tableInfo.getName()), schema2.getKeys(tableInfo2.getName())))
+		{
+			tableChildrenEquals = false;
+		}
+
+		if (tableChildrenEquals)
+		{
+			if (!tableInfo.equals(tableInfo2))
+			{
+				output.addDiff(new TableDiff(Diff.Mode.DIFFERENT, tableInfo, tableInfo2));
+
+				LOG.debug("Table {} differs in A and B", tableInfo.getName());
+			}
+			else
+			{
+				output.addDiff(new TableDiff(Diff.Mode.EQUAL, tableInfo, tableInfo2));
+			}
+		}
+		else
+		{
+			output.addDiff(new TableDiff(Diff.Mode.CHILDREN_DIFFER, tableInfo, tableInfo2));
+		}
+	}
+
+	private void compareViews(State state)
 	{
-		NamedObjectList<ViewInfo> views1 = state.getReader(Side.A).readViews(state.getDatabase(Side.A));
-		NamedObjectList<ViewInfo> views2 = state.getReader(Side.B).readViews(state.getDatabase(Side.B));
+		NamedObjectList<ViewInfo> views1 = state.getSchema(Side.A).getViews();
+		NamedObjectList<ViewInfo> views2 = state.getSchema(Side.B).getViews();
 
 		for (ViewInfo viewInfo : views1)
 		{
@@ -152,10 +550,10 @@ public class Compare
 		}
 	}
 
-	private void compareProcedures(State state) throws SQLException
+	private void compareProcedures(State state)
 	{
-		NamedObjectList<ProcedureInfo> procedures1 = state.getReader(Side.A).readProcedures(state.getDatabase(Side.A));
-		NamedObjectList<ProcedureInfo> procedures2 = state.getReader(Side.B).readProcedures(state.getDatabase(Side.B));
+		NamedObjectList<ProcedureInfo> procedures1 = state.getSchema(Side.A).getProcedures();
+		NamedObjectList<ProcedureInfo> procedures2 = state.getSchema(Side.B).getProcedures();
 
 		for (ProcedureInfo procedureInfo : procedures1)
 		{
@@ -194,11 +592,145 @@ public class Compare
 		}
 	}
 
-	private boolean compareFields(State state, String tableNameA, String tableNameB) throws SQLException
+	private void compareTriggers(State state)
+	{
+		NamedObjectList<TriggerInfo> triggers1 = state.getSchema(Side.A).getTriggers();
+		NamedObjectList<TriggerInfo> triggers2 = state.getSchema(Side.B).getTriggers();
+
+		for (TriggerInfo triggerInfo : triggers1)
+		{
+			if (triggers2.contains(triggerInfo.getName()))
+			{
+				if (!triggerInfo.equals(triggers2.get(triggerInfo.getName())))
+				{
+					state.compareResult.addDiff(new TriggerDiff(Diff.Mode.DIFFERENT, triggerInfo,
+						triggers2.get(triggerInfo.getName())));
+
+					LOG.debug("Trigger {} (A) differs from {} (B)", triggerInfo.getName(),
+						triggers2.get(triggerInfo.getName()).getName());
+				}
+				else
+				{
+					state.compareResult.addDiff(new TriggerDiff(Diff.Mode.EQUAL, triggerInfo,
+						triggers2.get(triggerInfo.getName())));
+				}
+			}
+			else
+			{
+				state.compareResult.addDiff(new TriggerDiff(Diff.Mode.LEFT_ONLY, triggerInfo, null));
+
+				LOG.debug("Trigger {} only in A", triggerInfo.getName());
+			}
+		}
+
+		for (TriggerInfo triggerInfo : triggers2)
+		{
+			if (!triggers1.contains(triggerInfo.getName()))
+			{
+				state.compareResult.addDiff(new TriggerDiff(Diff.Mode.RIGHT_ONLY, null, triggerInfo));
+
+				LOG.debug("Trigger {} only in B", triggerInfo.getName());
+			}
+		}
+	}
+
+	private void compareForeignKeys(State state)
+	{
+		SchemaModel schema1 = state.getSchema(Side.A);
+		SchemaModel schema2 = state.getSchema(Side.B);
+		NamedObjectList<ForeignKeyInfo> foreignKeys1 = schema1.getForeignKeys();
+		NamedObjectList<ForeignKeyInfo> foreignKeys2 = schema2.getForeignKeys();
+
+		// a table on one side only is created or dropped together with its constraints
+		for (ForeignKeyInfo foreignKeyInfo : foreignKeys1)
+		{
+			if (!schema2.getTables().contains(foreignKeyInfo.getTableName()))
+				continue;
+
+			if (foreignKeys2.contains(foreignKeyInfo.getName()))
+			{
+				ForeignKeyInfo foreignKeyInfo2 = foreignKeys2.get(foreignKeyInfo.getName());
+				if (!foreignKeyInfo.equals(foreignKeyInfo2))
+				{
+					state.compareResult.addDiff(new ForeignKeyDiff(Diff.Mode.DIFFERENT, foreignKeyInfo,
+						foreignKeyInfo2));
+
+					LOG.debug("Foreign key {}.{} (A) differs from {}.{} (B)", foreignKeyInfo.getTableName(),
+						foreignKeyInfo.getName(), foreignKeyInfo2.getTableName(), foreignKeyInfo2.getName());
+				}
+				else
+				{
+					state.compareResult.addDiff(new ForeignKeyDiff(Diff.Mode.EQUAL, foreignKeyInfo, foreignKeyInfo2));
+				}
+			}
+			else
+			{
+				state.compareResult.addDiff(new ForeignKeyDiff(Diff.Mode.LEFT_ONLY, foreignKeyInfo, null));
+
+				LOG.debug("Foreign key {}.{} only in A", foreignKeyInfo.getTableName(), foreignKeyInfo.getName());
+			}
+		}
+
+		for (ForeignKeyInfo foreignKeyInfo : foreignKeys2)
+		{
+			if (!schema1.getTables().contains(foreignKeyInfo.getTableName()))
+				continue;
+
+			if (!foreignKeys1.contains(foreignKeyInfo.getName()))
+			{
+				state.compareResult.addDiff(new ForeignKeyDiff(Diff.Mode.RIGHT_ONLY, null, foreignKeyInfo));
+
+				LOG.debug("Foreign key {}.{} only in B", foreignKeyInfo.getTableName(), foreignKeyInfo.getName());
+			}
+		}
+	}
+
+	private void comparePartitions(State state)
 	{
-		NamedObjectList<FieldInfo> fields1 = state.getReader(Side.A).readFields(state.getDatabase(Side.A), tableNameA);
-		NamedObjectList<FieldInfo> fields2 = state.getReader(Side.B).readFields(state.getDatabase(Side.B), tableNameB);
+		SchemaModel schema1 = state.getSchema(Side.A);
+		SchemaModel schema2 = state.getSchema(Side.B);
+		NamedObjectList<PartitionInfo> partitions1 = schema1.getPartitions();
+		NamedObjectList<PartitionInfo> partitions2 = schema2.getPartitions();
+
+		// like foreign keys the partitioning of a created table is part of its CREATE TABLE
+		for (TableInfo tableInfo : schema1.getTables())
+		{
+			if (!schema2.getTables().contains(tableInfo.getName()))
+				continue;
+
+			PartitionInfo partitionInfo1 = partitions1.get(tableInfo.getName());
+			PartitionInfo partitionInfo2 = partitions2.get(tableInfo.getName());
+			if (partitionInfo1 == null && partitionInfo2 == null)
+				continue;
+
+			if (partitionInfo2 == null)
+			{
+				state.compareResult.addDiff(new PartitionDiff(Diff.Mode.LEFT_ONLY, partitionInfo1, null));
+
+				LOG.debug("Table {} is only partitioned in A", tableInfo.getName());
+			}
+			else if (partitionInfo1 == null)
+			{
+				state.compareResult.addDiff(new PartitionDiff(Diff.Mode.RIGHT_ONLY, null, partitionInfo2));
+
+				LOG.debug("Table {} is only partitioned in B", tableInfo.getName());
+			}
+			else if (!partitionInfo1.equals(partitionInfo2))
+			{
+				state.compareResult.addDiff(new PartitionDiff(Diff.Mode.DIFFERENT, partitionInfo1, partitionInfo2));
 
+				LOG.debug("Partitions of table {} differ in A and B", tableInfo.getName());
+			}
+			else
+			{
+				state.compareResult.addDiff(new PartitionDiff(Diff.Mode.EQUAL, partitionInfo1, partitionInfo2));
+			}
+		}
+	}
+
+	private boolean compareFields(CompareResult output, String tableNameA, String tableNameB,
+		NamedObjectList<FieldInfo> fields1, NamedObjectList<FieldInfo> fields2)
+	{
 		boolean allFieldsEqual = true;
 
 		for (FieldInfo field : fields1)
@@ -210,20 +742,20 @@ public class Compare
 				if (!field.equals(field2))
 				{
 					allFieldsEqual = false;
-					state.compareResult.addDiff(new FieldDiff(Diff.Mode.DIFFERENT, field, field2));
+					output.addDiff(new FieldDiff(Diff.Mode.DIFFERENT, field, field2));
 
 					LOG.debug("Field {}.{} (A) differs from {}.{} (B)",
 						tableNameA, field.getName(), tableNameB, field2.getName());
 				}
 				else
 				{
-					state.compareResult.addDiff(new FieldDiff(Diff.Mode.EQUAL, field, field2));
+					output.addDiff(new FieldDiff(Diff.Mode.EQUAL, field, field2));
 				}
 			}
 			else
 			{
 				allFieldsEqual = false;
-				state.compareResult.addDiff(new FieldDiff(Diff.Mode.LEFT_ONLY, field, null));
+				output.addDiff(new FieldDiff(Diff.Mode.LEFT_ONLY, field, null));
 
 				LOG.debug("Field {}.{} only in A", tableNameA, field.getName());
 			}
@@ -234,7 +766,7 @@ public class Compare
 			if (!fields1.contains(field.getName()))
 			{
 				allFieldsEqual = false;
-				state.compareResult.addDiff(new FieldDiff(Diff.Mode.RIGHT_ONLY, null, field));
+				output.addDiff(new FieldDiff(Diff.Mode.RIGHT_ONLY, null, field));
 
 				LOG.debug("Field {}.{} only in B", tableNameB, field.getName());
 			}
@@ -243,11 +775,9 @@ public class Compare
 		return allFieldsEqual;
 	}
 
-	private boolean compareKeys(State state, String tableNameA, String tableNameB) throws SQLException
+	private boolean compareKeys(CompareResult output, String tableNameA, String tableNameB,
+		HashMap<String, KeyInfo> keys1, HashMap<String, KeyInfo> keys2)
 	{
-		HashMap<String, KeyInfo> keys1 = state.getReader(Side.A).readKeys(state.getDatabase(Side.A), tableNameA);
-		HashMap<String, KeyInfo> keys2 = state.getReader(Side.B).readKeys(state.getDatabase(Side.B), tableNameB);
-
 		boolean allKeysEqual = true;
 
 		// first process dropped keys to prevent max key size overflow
@@ -256,7 +786,7 @@ public class Compare
 			if (!keys1.containsKey(entry.getKey()))
 			{
 				allKeysEqual = false;
-				state.compareResult.addDiff(new KeyDiff(Diff.Mode.RIGHT_ONLY, null, entry.getValue()));
+				output.addDiff(new KeyDiff(Diff.Mode.RIGHT_ONLY, null, entry.getValue()));
 
 				LOG.debug("Key {}.{} only in B", tableNameB, entry.getValue().getName());
 			}
@@ -269,20 +799,20 @@ public class Compare
 				if (!entry.getValue().equals(keys2.get(entry.getKey())))
 				{
 					allKeysEqual = false;
-					state.compareResult.addDiff(new KeyDiff(Diff.Mode.DIFFERENT, entry.getValue(), keys2.get(entry.getKey())));
+					output.addDiff(new KeyDiff(Diff.Mode.DIFFERENT, entry.getValue(), keys2.get(entry.getKey())));
 
 					LOG.debug("Key {}.{} (A) differs from {}.{} (B)", tableNameA, entry.getValue().getName(),
 						tableNameB, keys2.get(entry.getKey()).getName());
 				}
 				else
 				{
-					state.compareResult.addDiff(new KeyDiff(Diff.Mode.EQUAL, entry.getValue(), keys2.get(entry.getKey())));
+					output.addDiff(new KeyDiff(Diff.Mode.EQUAL, entry.getValue(), keys2.get(entry.getKey())));
 				}
 			}
 			else
 			{
 				allKeysEqual = false;
-				state.compareResult.addDiff(new KeyDiff(Diff.Mode.LEFT_ONLY, entry.getValue(), null));
+				output.addDiff(new KeyDiff(Diff.Mode.LEFT_ONLY, entry.getValue(), null));
 
 				LOG.debug("Key {}.{} only in A", tableNameA, entry.getValue().getName());
 			}
@@ -296,6 +826,24 @@ public class Compare
 		A, B
 	}
 
+	private static String getServerId(ConnectionInfo serverInfo)
+	{
+		// the connection name is left out, two entries for the same server share their cache
+		return serverInfo.getUsername() + "@" + serverInfo.getHostname() + ":" + serverInfo.getPort();
+	}
+
+	private static class DigestedCatalog
+	{
+		public final SchemaCatalog catalog;
+		public final HashMap<String, String> digests;
+
+		public DigestedCatalog(SchemaCatalog catalog, HashMap<String, String> digests)
+		{
+			this.catalog = catalog;
+			this.digests = digests;
+		}
+	}
+
 	private static class State
 	{
 		public final ConnectionsManager conManager;
@@ -304,25 +852,84 @@ public class Compare
 		public final DBOReader readerA;
 		public final DBOReader readerB;
 		public final CompareResult compareResult;
+		public final HashSet<String> pendingTables = new HashSet<>();
+		public SchemaModel schemaA;
+		public SchemaModel schemaB;
 
-		public State(ConnectionsManager conManager, String databaseA, String databaseB)
+		public State(ConnectionsManager conManager, String databaseA, String databaseB, SchemaSource sourceA,
+			SchemaSource sourceB) throws SQLException
 		{
 			this.conManager = conManager;
 			this.databaseA = databaseA;
 			this.databaseB = databaseB;
-			readerA = new DBOReader(getConnection(Side.A));
-			readerB = new DBOReader(getConnection(Side.B));
+			// a side with a source of its own needs no server connection
+			if (sourceA == null)
+			{
+				readerA = new DBOReader(getConnections(Side.A));
+				readerA.setBatchSize(conManager.getServerA().getBatchSize());
+				readerA.setQueryTimeout(conManager.getServerA().getQueryTimeout());
+				readerA.setThrottle(conManager.getThrottleA());
+				readerA.setFetchMode(conManager.getServerA().getFetchMode());
+				readerA.setWorkers(conManager.getWorkersA());
+			}
+			else
+			{
+				readerA = null;
+			}
+			if (sourceB == null)
+			{
+				readerB = new DBOReader(getConnections(Side.B));
+				readerB.setBatchSize(conManager.getServerB().getBatchSize());
+				readerB.setQueryTimeout(conManager.getServerB().getQueryTimeout());
+				readerB.setThrottle(conManager.getThrottleB());
+				readerB.setFetchMode(conManager.getServerB().getFetchMode());
+				readerB.setWorkers(conManager.getWorkersB());
+			}
+			else
+			{
+				readerB = null;
+			}
+			this.compareResult = new CompareResult(databaseA, databaseB);
+		}
+
+		public State(String databaseA, String databaseB, SchemaModel schemaA, SchemaModel schemaB)
+		{
+			this.conManager = null;
+			this.databaseA = databaseA;
+			this.databaseB = databaseB;
+			this.readerA = null;
+			this.readerB = null;
 			this.compareResult = new CompareResult(databaseA, databaseB);
+			this.schemaA = schemaA;
+			this.schemaB = schemaB;
 		}
 
-		public final Connection getConnection(Side side)
+		public List<DBOReader> getReaders()
+		{
+			List<DBOReader> readers = new ArrayList<>();
+			if (readerA != null)
+				readers.add(readerA);
+			if (readerB != null)
+				readers.add(readerB);
+			return readers;
+		}
+
+		public void close() throws SQLException
+		{
+			for (DBOReader reader : getReaders())
+			{
+				reader.close();
+			}
+		}
+
+		public final List<Connection> getConnections(Side side) throws SQLException
 		{
 			switch (side)
 			{
 				case A:
-					return conManager.getConnectionA();
+					return conManager.getConnectionsA();
 				case B:
-					return conManager.getConnectionB();
+					return conManager.getConnectionsB();
 				default:
 					return null;
 			}
@@ -341,6 +948,19 @@ public class Compare
 			}
 		}
 
+		public SchemaModel getSchema(Side side)
+		{
+			switch (side)
+			{
+				case A:
+					return schemaA;
+				case B:
+					return schemaB;
+				default:
+					return null;
+			}
+		}
+
 		public DBOReader getReader(Side side)
 		{
 			switch (side)
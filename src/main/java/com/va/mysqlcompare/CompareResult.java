@@ -41,6 +41,17 @@ public class CompareResult implements Serializable
 		diffs.add(diff);
 	}
 
+	public boolean replaceDiff(Diff diff, List<Diff> replacement)
+	{
+		int index = diffs.indexOf(diff);
+		if (index < 0)
+			return false;
+
+		diffs.remove(index);
+		diffs.addAll(index, replacement);
+		return true;
+	}
+
 	public String getDatabaseA()
 	{
 		return databaseA;
@@ -67,6 +78,9 @@ public class CompareResult implements Serializable
 			FIELD,
 			KEY,
 			PROCEDURE,
+			TRIGGER,
+			FOREIGN_KEY,
+			PARTITION,
 		}
 
 		public enum Mode
@@ -75,7 +89,8 @@ public class CompareResult implements Serializable
 			CHILDREN_DIFFER,
 			LEFT_ONLY,
 			RIGHT_ONLY,
-			DIFFERENT
+			DIFFERENT,
+			PENDING
 		}
 
 		private final Type type;
@@ -258,4 +273,82 @@ public class CompareResult implements Serializable
 			return viewInfoB;
 		}
 	}
+
+	public static class TriggerDiff extends Diff
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final TriggerInfo triggerInfoA;
+		private final TriggerInfo triggerInfoB;
+
+		public TriggerDiff(Diff.Mode type, TriggerInfo triggerInfoA, TriggerInfo triggerInfoB)
+		{
+			super(Diff.Type.TRIGGER, type);
+
+			this.triggerInfoA = triggerInfoA;
+			this.triggerInfoB = triggerInfoB;
+		}
+
+		public TriggerInfo getTriggerInfoA()
+		{
+			return triggerInfoA;
+		}
+
+		public TriggerInfo getTriggerInfoB()
+		{
+			return triggerInfoB;
+		}
+	}
+
+	public static class ForeignKeyDiff extends Diff
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final ForeignKeyInfo foreignKeyInfoA;
+		private final ForeignKeyInfo foreignKeyInfoB;
+
+		public ForeignKeyDiff(Diff.Mode type, ForeignKeyInfo foreignKeyInfoA, ForeignKeyInfo foreignKeyInfoB)
+		{
+			super(Diff.Type.FOREIGN_KEY, type);
+
+			this.foreignKeyInfoA = foreignKeyInfoA;
+			this.foreignKeyInfoB = foreignKeyInfoB;
+		}
+
+		public ForeignKeyInfo getForeignKeyInfoA()
+		{
+			return foreignKeyInfoA;
+		}
+
+		public ForeignKeyInfo getForeignKeyInfoB()
+		{
+			return foreignKeyInfoB;
+		}
+	}
+
+	public static class PartitionDiff extends Diff
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final PartitionInfo partitionInfoA;
+		private final PartitionInfo partitionInfoB;
+
+		public PartitionDiff(Diff.Mode type, PartitionInfo partitionInfoA, PartitionInfo partitionInfoB)
+		{
+			super(Diff.Type.PARTITION, type);
+
+			this.partitionInfoA = partitionInfoA;
+			this.partitionInfoB = partitionInfoB;
+		}
+
+		public PartitionInfo getPartitionInfoA()
+		{
+			return partitionInfoA;
+		}
+
+		public PartitionInfo getPartitionInfoB()
+		{
+			return partitionInfoB;
+		}
+	}
 }
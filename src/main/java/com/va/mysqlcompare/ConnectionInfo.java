@@ -22,17 +22,65 @@ public class ConnectionInfo implements Serializable
 {
 	private static final long serialVersionUID = 1L;
 
+	public static final int DEFAULT_BATCH_SIZE = 50;
+	public static final int DEFAULT_POOL_SIZE = 4;
+	public static final int DEFAULT_QUERY_TIMEOUT = 300;
+	public static final int DEFAULT_MAX_QUERIES_PER_SECOND = 0;
+	public static final int DEFAULT_MAX_CONCURRENT_QUERIES = 0;
+	public static final FetchMode DEFAULT_FETCH_MODE = FetchMode.ADAPTIVE;
+	public static final CompareMode DEFAULT_COMPARE_MODE = CompareMode.EAGER;
+	public static final boolean DEFAULT_METADATA_CACHE = false;
+
+	// how the columns and keys of the tables are read
+	public enum FetchMode
+	{
+		// per table or in bulk from information_schema, whatever the measured costs favor
+		ADAPTIVE,
+		// always in bulk from information_schema
+		BULK,
+		// parsed from SHOW CREATE TABLE
+		CREATE_STATEMENT,
+	}
+
+	// when the tables of a compare are read in detail
+	public enum CompareMode
+	{
+		// all tables before the result is shown
+		EAGER,
+		// the digests of all tables first, then only the tables whose digests differ
+		TWO_PHASE,
+		// the result is shown from the digests, the differing tables are loaded in the background
+		LAZY,
+	}
+
 	private final UUID id;
 	private String name;
 	private String hostname;
 	private int port;
 	private String username;
+	private int batchSize;
+	private int poolSize;
+	private int queryTimeout;
+	private int maxQueriesPerSecond;
+	private int maxConcurrentQueries;
+	private String objectFilter;
+	private FetchMode fetchMode;
+	private CompareMode compareMode;
+	private boolean metadataCache;
 
 	public ConnectionInfo(UUID id)
 	{
 		this.id = id;
 		this.port = 3306;
 		this.username = "root";
+		this.batchSize = DEFAULT_BATCH_SIZE;
+		this.poolSize = DEFAULT_POOL_SIZE;
+		this.queryTimeout = DEFAULT_QUERY_TIMEOUT;
+		this.maxQueriesPerSecond = DEFAULT_MAX_QUERIES_PER_SECOND;
+		this.maxConcurrentQueries = DEFAULT_MAX_CONCURRENT_QUERIES;
+		this.fetchMode = DEFAULT_FETCH_MODE;
+		this.compareMode = DEFAULT_COMPARE_MODE;
+		this.metadataCache = DEFAULT_METADATA_CACHE;
 	}
 
 	public ConnectionInfo(UUID id, String name)
@@ -91,6 +139,96 @@ public class ConnectionInfo implements Serializable
 		this.username = username;
 	}
 
+	public int getBatchSize()
+	{
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize)
+	{
+		this.batchSize = batchSize;
+	}
+
+	public int getPoolSize()
+	{
+		return poolSize;
+	}
+
+	public void setPoolSize(int poolSize)
+	{
+		this.poolSize = poolSize;
+	}
+
+	public int getQueryTimeout()
+	{
+		return queryTimeout;
+	}
+
+	public void setQueryTimeout(int queryTimeout)
+	{
+		this.queryTimeout = queryTimeout;
+	}
+
+	public int getMaxQueriesPerSecond()
+	{
+		return maxQueriesPerSecond;
+	}
+
+	public void setMaxQueriesPerSecond(int maxQueriesPerSecond)
+	{
+		this.maxQueriesPerSecond = maxQueriesPerSecond;
+	}
+
+	public int getMaxConcurrentQueries()
+	{
+		return maxConcurrentQueries;
+	}
+
+	public void setMaxConcurrentQueries(int maxConcurrentQueries)
+	{
+		this.maxConcurrentQueries = maxConcurrentQueries;
+	}
+
+	public String getObjectFilter()
+	{
+		return objectFilter;
+	}
+
+	public void setObjectFilter(String objectFilter)
+	{
+		this.objectFilter = objectFilter;
+	}
+
+	public FetchMode getFetchMode()
+	{
+		return fetchMode;
+	}
+
+	public void setFetchMode(FetchMode fetchMode)
+	{
+		this.fetchMode = fetchMode != null ? fetchMode : DEFAULT_FETCH_MODE;
+	}
+
+	public CompareMode getCompareMode()
+	{
+		return compareMode;
+	}
+
+	public void setCompareMode(CompareMode compareMode)
+	{
+		this.compareMode = compareMode != null ? compareMode : DEFAULT_COMPARE_MODE;
+	}
+
+	public boolean isMetadataCache()
+	{
+		return metadataCache;
+	}
+
+	public void setMetadataCache(boolean metadataCache)
+	{
+		this.metadataCache = metadataCache;
+	}
+
 	@Override
 	public String toString()
 	{
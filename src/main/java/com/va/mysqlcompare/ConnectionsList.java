@@ -31,6 +31,15 @@ public class ConnectionsList extends ArrayList<ConnectionInfo>
 	private static final String KEY_PORT = "port";
 	private static final String KEY_USERNAME = "username";
 	private static final String KEY_PASSWORD = "password";
+	private static final String KEY_BATCH_SIZE = "batch_size";
+	private static final String KEY_POOL_SIZE = "pool_size";
+	private static final String KEY_QUERY_TIMEOUT = "query_timeout";
+	private static final String KEY_MAX_QUERIES_PER_SECOND = "max_queries_per_second";
+	private static final String KEY_MAX_CONCURRENT_QUERIES = "max_concurrent_queries";
+	private static final String KEY_OBJECT_FILTER = "object_filter";
+	private static final String KEY_FETCH_MODE = "fetch_mode";
+	private static final String KEY_COMPARE_MODE = "compare_mode";
+	private static final String KEY_METADATA_CACHE = "metadata_cache";
 
 	public static String getConnectionInfoKeyPrefix(ConnectionInfo info)
 	{
@@ -94,6 +103,18 @@ public class ConnectionsList extends ArrayList<ConnectionInfo>
 		info.setHostname(dataStore.getString(prefix + KEY_HOSTNAME));
 		info.setPort(dataStore.getInt(prefix + KEY_PORT, 3306));
 		info.setUsername(dataStore.getString(prefix + KEY_USERNAME));
+		info.setBatchSize(dataStore.getInt(prefix + KEY_BATCH_SIZE, ConnectionInfo.DEFAULT_BATCH_SIZE));
+		info.setPoolSize(dataStore.getInt(prefix + KEY_POOL_SIZE, ConnectionInfo.DEFAULT_POOL_SIZE));
+		info.setQueryTimeout(dataStore.getInt(prefix + KEY_QUERY_TIMEOUT, ConnectionInfo.DEFAULT_QUERY_TIMEOUT));
+		info.setMaxQueriesPerSecond(dataStore.getInt(prefix + KEY_MAX_QUERIES_PER_SECOND,
+			ConnectionInfo.DEFAULT_MAX_QUERIES_PER_SECOND));
+		info.setMaxConcurrentQueries(dataStore.getInt(prefix + KEY_MAX_CONCURRENT_QUERIES,
+			ConnectionInfo.DEFAULT_MAX_CONCURRENT_QUERIES));
+		info.setObjectFilter(dataStore.getString(prefix + KEY_OBJECT_FILTER, null));
+		info.setFetchMode(parseFetchMode(dataStore.getString(prefix + KEY_FETCH_MODE, null)));
+		info.setCompareMode(parseCompareMode(dataStore.getString(prefix + KEY_COMPARE_MODE, null)));
+		info.setMetadataCache(dataStore.getInt(prefix + KEY_METADATA_CACHE,
+			ConnectionInfo.DEFAULT_METADATA_CACHE ? 1 : 0) != 0);
 
 		return info;
 	}
@@ -106,5 +127,36 @@ public class ConnectionsList extends ArrayList<ConnectionInfo>
 		dataStore.putData(prefix + KEY_HOSTNAME, info.getHostname());
 		dataStore.putData(prefix + KEY_PORT, info.getPort());
 		dataStore.putData(prefix + KEY_USERNAME, info.getUsername());
+		dataStore.putData(prefix + KEY_BATCH_SIZE, info.getBatchSize());
+		dataStore.putData(prefix + KEY_POOL_SIZE, info.getPoolSize());
+		dataStore.putData(prefix + KEY_QUERY_TIMEOUT, info.getQueryTimeout());
+		dataStore.putData(prefix + KEY_MAX_QUERIES_PER_SECOND, info.getMaxQueriesPerSecond());
+		dataStore.putData(prefix + KEY_MAX_CONCURRENT_QUERIES, info.getMaxConcurrentQueries());
+		if (info.getObjectFilter() != null)
+			dataStore.putData(prefix + KEY_OBJECT_FILTER, info.getObjectFilter());
+		dataStore.putData(prefix + KEY_FETCH_MODE, info.getFetchMode().name());
+		dataStore.putData(prefix + KEY_COMPARE_MODE, info.getCompareMode().name());
+		dataStore.putData(prefix + KEY_METADATA_CACHE, info.isMetadataCache() ? 1 : 0);
+	}
+
+	private static ConnectionInfo.FetchMode parseFetchMode(String value)
+	{
+		// unknown values of newer versions fall back to the default
+		for (ConnectionInfo.FetchMode fetchMode : ConnectionInfo.FetchMode.values())
+		{
+			if (fetchMode.name().equalsIgnoreCase(value))
+				return fetchMode;
+		}
+		return ConnectionInfo.DEFAULT_FETCH_MODE;
+	}
+
+	private static ConnectionInfo.CompareMode parseCompareMode(String value)
+	{
+		for (ConnectionInfo.CompareMode compareMode : ConnectionInfo.CompareMode.values())
+		{
+			if (compareMode.name().equalsIgnoreCase(value))
+				return compareMode;
+		}
+		return ConnectionInfo.DEFAULT_COMPARE_MODE;
 	}
 }
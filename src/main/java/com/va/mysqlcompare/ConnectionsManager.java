@@ -20,6 +20,10 @@ import com.va.securestore.PasswordStore;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
@@ -32,6 +36,13 @@ public class ConnectionsManager implements AutoCloseable
 	private final PasswordStore passwordStore;
 	private Connection connectionA = null;
 	private Connection connectionB = null;
+	private final List<Connection> poolA = new ArrayList<>();
+	private final List<Connection> poolB = new ArrayList<>();
+	// run the batches on the pooled connections, kept as long as the connections are
+	private ExecutorService workersA = null;
+	private ExecutorService workersB = null;
+	private final QueryThrottle throttleA;
+	private final QueryThrottle throttleB;
 
 	private final AtomicInteger connectionCount = new AtomicInteger(0);
 
@@ -40,6 +51,8 @@ public class ConnectionsManager implements AutoCloseable
 		this.serverA = serverA;
 		this.serverB = serverB;
 		this.passwordStore = passwordStore;
+		this.throttleA = new QueryThrottle(serverA);
+		this.throttleB = new QueryThrottle(serverB);
 	}
 
 	public boolean connect(UserInteraction userInteraction) throws SQLException
@@ -75,7 +88,7 @@ public class ConnectionsManager implements AutoCloseable
 				{
 					url.append(":").append(serverInfo.getPort());
 				}
-				url.append("/");
+				url.append("/?allowMultiQueries=true&useServerPrepStmts=true");
 
 				char[] password = passwordStore.loadPassword(ConnectionsList.getPasswordKey(serverInfo));
 
@@ -118,6 +131,16 @@ public class ConnectionsManager implements AutoCloseable
 		return serverB;
 	}
 
+	public QueryThrottle getThrottleA()
+	{
+		return throttleA;
+	}
+
+	public QueryThrottle getThrottleB()
+	{
+		return throttleB;
+	}
+
 	public Connection getConnectionA()
 	{
 		return connectionA;
@@ -128,11 +151,75 @@ public class ConnectionsManager implements AutoCloseable
 		return connectionB;
 	}
 
+	public synchronized List<Connection> getConnectionsA() throws SQLException
+	{
+		return fillPool(poolA, connectionA, serverA);
+	}
+
+	public synchronized List<Connection> getConnectionsB() throws SQLException
+	{
+		return fillPool(poolB, connectionB, serverB);
+	}
+
+	public synchronized ExecutorService getWorkersA()
+	{
+		if (workersA == null)
+			workersA = Executors.newWorkStealingPool(Math.max(1, serverA.getPoolSize()));
+		return workersA;
+	}
+
+	public synchronized ExecutorService getWorkersB()
+	{
+		if (workersB == null)
+			workersB = Executors.newWorkStealingPool(Math.max(1, serverB.getPoolSize()));
+		return workersB;
+	}
+
+	private List<Connection> fillPool(List<Connection> pool, Connection connection, ConnectionInfo serverInfo)
+		throws SQLException
+	{
+		if (pool.isEmpty())
+		{
+			pool.add(connection);
+		}
+		// the password is known at this point, so no user interaction is needed
+		while (pool.size() < serverInfo.getPoolSize())
+		{
+			pool.add(connect(serverInfo, null));
+		}
+		return new ArrayList<>(pool);
+	}
+
+	private void closePool(List<Connection> pool) throws SQLException
+	{
+		// the first pool entry is the main connection and closed separately
+		for (int i = 1; i < pool.size(); ++i)
+		{
+			pool.get(i).close();
+		}
+		pool.clear();
+	}
+
 	@Override
 	public void close() throws SQLException
 	{
 		if (connectionCount.decrementAndGet() == 0)
 		{
+			synchronized (this)
+			{
+				closePool(poolA);
+				closePool(poolB);
+				if (workersA != null)
+				{
+					workersA.shutdownNow();
+					workersA = null;
+				}
+				if (workersB != null)
+				{
+					workersB.shutdownNow();
+					workersB = null;
+				}
+			}
 			if (connectionA != null)
 			{
 				connectionA.close();
@@ -0,0 +1,882 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class CreateTableParser
+{
+	private static final Pattern AUTO_INCREMENT_PATTERN = Pattern.compile("AUTO_INCREMENT=\\d+",
+		Pattern.CASE_INSENSITIVE);
+	private static final Pattern ENGINE_PATTERN = Pattern.compile("ENGINE=([^\\s]+)", Pattern.CASE_INSENSITIVE);
+	private static final Pattern CHARSET_PATTERN = Pattern.compile("CHARSET=([^\\s]+)", Pattern.CASE_INSENSITIVE);
+	private static final Pattern COLLATE_PATTERN = Pattern.compile("COLLATE=([^\\s]+)", Pattern.CASE_INSENSITIVE);
+	// mysqldump and SHOW CREATE TABLE put the clause into a versioned comment
+	private static final Pattern PARTITION_PATTERN = Pattern.compile("(/\\*!\\d*\\s*)?PARTITION\\s+BY\\s",
+		Pattern.CASE_INSENSITIVE);
+
+	private static final HashSet<String> STRING_TYPES = new HashSet<>(Arrays.asList(
+		"char", "varchar", "tinytext", "text", "mediumtext", "longtext", "enum", "set"));
+
+	private CreateTableParser()
+	{
+	}
+
+	public static TableInfo parseTableInfo(String name, String info)
+	{
+		return parseTableInfo(name, info, Collations.DEFAULT);
+	}
+
+	// collations resolves a character set without COLLATE to its default, like the server does
+	public static TableInfo parseTableInfo(String name, String info, Collations collations)
+	{
+		// ENGINE=InnoDB DEFAULT CHARSET=latin1 COLLATE=latin1_general_ci
+
+		info = AUTO_INCREMENT_PATTERN.matcher(info).replaceAll("");
+
+		// the partition definitions have parentheses and ENGINE options of their own
+		int partitionStart = findPartitionClause(info);
+		String options = partitionStart >= 0 ? info.substring(0, partitionStart) : info;
+
+		int pos = options.lastIndexOf(')');
+
+		String engine = "InnoDB";
+		Matcher em = ENGINE_PATTERN.matcher(options);
+		if (em.find(pos))
+		{
+			engine = em.group(1);
+		}
+
+		String charset = "utf8mb4";
+		Matcher chm = CHARSET_PATTERN.matcher(options);
+		if (chm.find(pos))
+		{
+			charset = chm.group(1);
+		}
+
+		String collation = collations.getDefault(charset);
+		Matcher com = COLLATE_PATTERN.matcher(options);
+		if (com.find(pos))
+		{
+			collation = com.group(1);
+		}
+
+		return new TableInfo(name, info, engine, charset, collation);
+	}
+
+	public static Result parse(String createStatement) throws SQLException
+	{
+		return parse(createStatement, Collations.DEFAULT);
+	}
+
+	public static Result parse(String createStatement, Collations collations) throws SQLException
+	{
+		List<Token> header = tokenize(createStatement.substring(0, findBodyStart(createStatement)));
+
+		// CREATE [TEMPORARY] TABLE [IF NOT EXISTS] [db.]name, the name is the last identifier
+		String name = null;
+		for (Token token : header)
+		{
+			if (token.type == TokenType.IDENTIFIER)
+			{
+				name = token.text;
+			}
+			else if (token.type == TokenType.WORD && !token.isWord("CREATE") && !token.isWord("TEMPORARY")
+				&& !token.isWord("TABLE") && !token.isWord("IF") && !token.isWord("NOT") && !token.isWord("EXISTS")
+				&& !token.text.equals("."))
+			{
+				name = token.text.substring(token.text.lastIndexOf('.') + 1);
+			}
+		}
+		if (name == null || name.isEmpty())
+			throw new SQLException("Could not find table name in `" + createStatement + "`");
+
+		return parse(name, createStatement, collations);
+	}
+
+	public static Result parse(String name, String createStatement) throws SQLException
+	{
+		return parse(name, createStatement, Collations.DEFAULT);
+	}
+
+	public static Result parse(String name, String createStatement, Collations collations) throws SQLException
+	{
+		TableInfo tableInfo = parseTableInfo(name, createStatement, collations);
+
+		int start = findBodyStart(createStatement);
+		int end = findClosingParenthesis(createStatement, start);
+		List<String> definitions = splitTopLevel(createStatement.substring(start + 1, end));
+
+		List<List<Token>> columnDefinitions = new ArrayList<>();
+		HashMap<String, KeyInfo> keys = new HashMap<>();
+		NamedObjectList<ForeignKeyInfo> foreignKeys = new NamedObjectList<>();
+		for (String definition : definitions)
+		{
+			List<Token> tokens = tokenize(definition);
+			if (tokens.isEmpty())
+				continue;
+
+			Token first = tokens.get(0);
+			if (first.type == TokenType.IDENTIFIER)
+			{
+				columnDefinitions.add(tokens);
+			}
+			else if (first.isWord("PRIMARY") || first.isWord("UNIQUE") || first.isWord("KEY")
+				|| first.isWord("INDEX") || first.isWord("FULLTEXT") || first.isWord("SPATIAL"))
+			{
+				KeyInfo keyInfo = parseKey(name, tokens);
+				keys.put(keyInfo.getName().toLowerCase(), keyInfo);
+			}
+			else if (isForeignKey(tokens))
+			{
+				foreignKeys.add(parseForeignKey(name, tokens, nextForeignKeyNumber(name, foreignKeys)));
+			}
+			else if (first.type == TokenType.WORD && !first.isWord("CONSTRAINT") && !first.isWord("CHECK")
+				&& !first.isWord("FOREIGN"))
+			{
+				// unquoted column name
+				columnDefinitions.add(tokens);
+			}
+		}
+
+		HashSet<String> uniqueColumns = new HashSet<>();
+		keys.values().forEach((keyInfo) ->
+		{
+			if (keyInfo.isUnique() && !keyInfo.getName().equals("PRIMARY"))
+				uniqueColumns.add(keyInfo.getFields().get(0).getName().toLowerCase());
+		});
+
+		NamedObjectList<FieldInfo> fields = new NamedObjectList<>();
+		String lastFieldName = null;
+		for (List<Token> tokens : columnDefinitions)
+		{
+			FieldInfo fieldInfo = parseField(tableInfo, tokens, lastFieldName, uniqueColumns, collations);
+			fields.add(fieldInfo);
+			lastFieldName = fieldInfo.getName();
+		}
+
+		return new Result(tableInfo, fields, keys, foreignKeys, parsePartitions(name, createStatement));
+	}
+
+	private static FieldInfo parseField(TableInfo tableInfo, List<Token> tokens, String previousFieldName,
+		HashSet<String> uniqueColumns, Collations collations) throws SQLException
+	{
+		if (tokens.size() < 2)
+			throw new SQLException("Could not parse column definition in table `" + tableInfo.getName() + "`");
+
+		String name = tokens.get(0).text;
+
+		int i = 1;
+		StringBuilder columnType = new StringBuilder(tokens.get(i++).text.toLowerCase());
+		if (i < tokens.size() && tokens.get(i).type == TokenType.GROUP)
+		{
+			columnType.append("(").append(tokens.get(i++).text).append(")");
+		}
+		String baseType = columnType.toString().replaceAll("\\(.*", "");
+
+		String charset = null;
+		String collation = null;
+		boolean nullValue = true;
+		String defaultValue = null;
+		boolean autoIncrement = false;
+		FieldInfo.GenerationType generationType = FieldInfo.GenerationType.NONE;
+		String generationExpression = null;
+		boolean generationUniqueKey = false;
+
+		for (; i < tokens.size(); ++i)
+		{
+			Token token = tokens.get(i);
+			Token next = i + 1 < tokens.size() ? tokens.get(i + 1) : null;
+
+			if (token.isWord("NOT") && next != null && next.isWord("NULL"))
+			{
+				nullValue = false;
+				i++;
+			}
+			else if (token.isWord("DEFAULT") && next != null)
+			{
+				i++;
+				if (next.isWord("NULL"))
+				{
+					defaultValue = null;
+				}
+				else if (next.type == TokenType.GROUP)
+				{
+					defaultValue = next.text;
+				}
+				else
+				{
+					defaultValue = next.text;
+					// CURRENT_TIMESTAMP(6)
+					if (next.type == TokenType.WORD && i + 1 < tokens.size()
+						&& tokens.get(i + 1).type == TokenType.GROUP)
+					{
+						defaultValue += "(" + tokens.get(++i).text + ")";
+					}
+				}
+			}
+			else if (token.isWord("AUTO_INCREMENT"))
+			{
+				autoIncrement = true;
+			}
+			else if (token.isWord("COLLATE") && next != null)
+			{
+				collation = next.text;
+				i++;
+			}
+			else if ((token.isWord("CHARSET") || token.isWord("CHARACTER")) && next != null)
+			{
+				if (next.isWord("SET") && i + 2 < tokens.size())
+				{
+					i++;
+					next = tokens.get(i + 1);
+				}
+				charset = next.text;
+				i++;
+			}
+			else if (token.isWord("AS") && next != null && next.type == TokenType.GROUP)
+			{
+				generationType = FieldInfo.GenerationType.VIRTUAL;
+				generationExpression = next.text;
+				i++;
+			}
+			else if (token.isWord("STORED") || token.isWord("PERSISTENT"))
+			{
+				generationType = FieldInfo.GenerationType.STORED;
+			}
+			else if (token.isWord("VIRTUAL"))
+			{
+				generationType = FieldInfo.GenerationType.VIRTUAL;
+			}
+			else if (token.isWord("UNIQUE"))
+			{
+				generationUniqueKey = true;
+			}
+			else if (token.isWord("UNSIGNED") || token.isWord("ZEROFILL"))
+			{
+				columnType.append(" ").append(token.text.toLowerCase());
+			}
+		}
+
+		if (STRING_TYPES.contains(baseType))
+		{
+			if (collation == null)
+			{
+				// a column only names its character set if it differs from the one of the table
+				collation = charset != null ? collations.getDefault(charset) : tableInfo.getCollation();
+			}
+		}
+		else
+		{
+			collation = null;
+		}
+
+		if (generationType == FieldInfo.GenerationType.NONE)
+		{
+			generationUniqueKey = false;
+		}
+		else
+		{
+			generationUniqueKey |= uniqueColumns.contains(name.toLowerCase());
+		}
+
+		return new FieldInfo(tableInfo.getName(), name, previousFieldName, columnType.toString(), collation, nullValue,
+			defaultValue, autoIncrement, generationType, generationExpression, generationUniqueKey);
+	}
+
+	private static KeyInfo parseKey(String tableName, List<Token> tokens) throws SQLException
+	{
+		boolean primary = tokens.get(0).isWord("PRIMARY");
+		boolean unique = primary || tokens.get(0).isWord("UNIQUE");
+
+		String name = primary ? "PRIMARY" : null;
+		Token columns = null;
+		for (int i = 1; i < tokens.size() && columns == null; ++i)
+		{
+			Token token = tokens.get(i);
+			if (token.type == TokenType.GROUP)
+			{
+				columns = token;
+			}
+			else if (!primary && name == null && (token.type == TokenType.IDENTIFIER
+				|| (token.type == TokenType.WORD && !token.isWord("UNIQUE") && !token.isWord("FULLTEXT")
+				&& !token.isWord("SPATIAL") && !token.isWord("KEY") && !token.isWord("INDEX"))))
+			{
+				name = token.text;
+			}
+		}
+
+		if (columns == null)
+			throw new SQLException("Could not parse key definition in table `" + tableName + "`");
+
+		List<String> columnDefinitions = splitTopLevel(columns.text);
+		if (name == null)
+		{
+			// unnamed keys are named after their first column
+			name = tokenize(columnDefinitions.get(0)).get(0).text;
+		}
+
+		KeyInfo keyInfo = new KeyInfo(tableName, name, unique);
+		for (String column : columnDefinitions)
+		{
+			List<Token> columnTokens = tokenize(column);
+			if (columnTokens.isEmpty())
+				continue;
+
+			int length = -1;
+			if (columnTokens.size() > 1 && columnTokens.get(1).type == TokenType.GROUP)
+			{
+				try
+				{
+					length = Integer.parseInt(columnTokens.get(1).text.trim());
+				}
+				catch (NumberFormatException e)
+				{
+					length = -1;
+				}
+			}
+			keyInfo.addField(columnTokens.get(0).text, length);
+		}
+
+		return keyInfo;
+	}
+
+	private static boolean isForeignKey(List<Token> tokens)
+	{
+		// CONSTRAINT [name] FOREIGN KEY, a CONSTRAINT can also be a CHECK or a UNIQUE key
+		for (int i = 0; i < tokens.size() && i < 3; ++i)
+		{
+			if (tokens.get(i).isWord("FOREIGN"))
+				return true;
+		}
+		return false;
+	}
+
+	private static int nextForeignKeyNumber(String tableName, NamedObjectList<ForeignKeyInfo> foreignKeys)
+	{
+		// like InnoDB an unnamed key continues after the highest generated name so far
+		String prefix = tableName.toLowerCase() + "_ibfk_";
+		int number = 0;
+		for (ForeignKeyInfo foreignKeyInfo : foreignKeys)
+		{
+			String keyName = foreignKeyInfo.getName().toLowerCase();
+			if (keyName.startsWith(prefix) && keyName.substring(prefix.length()).matches("\\d{1,9}"))
+				number = Math.max(number, Integer.parseInt(keyName.substring(prefix.length())));
+		}
+		return number + 1;
+	}
+
+	private static ForeignKeyInfo parseForeignKey(String tableName, List<Token> tokens, int number)
+		throws SQLException
+	{
+		// [CONSTRAINT [name]] FOREIGN KEY [index] (columns) REFERENCES [db.]table (columns) [ON DELETE|UPDATE rule]
+		String name = null;
+		int i = 0;
+		if (tokens.get(0).isWord("CONSTRAINT"))
+		{
+			i++;
+			if (!tokens.get(i).isWord("FOREIGN"))
+				name = tokens.get(i++).text;
+		}
+		while (i < tokens.size() && tokens.get(i).type != TokenType.GROUP)
+		{
+			i++;
+		}
+		if (i >= tokens.size())
+			throw new SQLException("Could not parse foreign key definition in table `" + tableName + "`");
+		List<String> columns = getGroupNames(tokens.get(i++));
+
+		if (i >= tokens.size() || !tokens.get(i).isWord("REFERENCES"))
+			throw new SQLException("Could not parse foreign key definition in table `" + tableName + "`");
+		i++;
+
+		// the schema is only given for a table in another schema
+		String referencedSchema = null;
+		String referencedTable = null;
+		for (; i < tokens.size() && tokens.get(i).type != TokenType.GROUP; ++i)
+		{
+			Token token = tokens.get(i);
+			if (token.text.equals("."))
+			{
+				referencedSchema = referencedTable;
+				referencedTable = null;
+			}
+			else if (token.type == TokenType.WORD && token.text.indexOf('.') > 0)
+			{
+				referencedSchema = token.text.substring(0, token.text.indexOf('.'));
+				referencedTable = token.text.substring(token.text.indexOf('.') + 1);
+			}
+			else
+			{
+				referencedTable = token.text;
+			}
+		}
+		if (i >= tokens.size() || referencedTable == null)
+			throw new SQLException("Could not parse foreign key definition in table `" + tableName + "`");
+		List<String> referencedColumns = getGroupNames(tokens.get(i++));
+
+		String updateRule = null;
+		String deleteRule = null;
+		for (; i + 2 < tokens.size(); ++i)
+		{
+			if (!tokens.get(i).isWord("ON"))
+				continue;
+
+			boolean delete = tokens.get(i + 1).isWord("DELETE");
+			i += 2;
+			String rule = tokens.get(i).text;
+			// SET NULL, SET DEFAULT, NO ACTION
+			if ((tokens.get(i).isWord("SET") || tokens.get(i).isWord("NO")) && i + 1 < tokens.size())
+				rule += " " + tokens.get(++i).text;
+			if (delete)
+				deleteRule = rule;
+			else
+				updateRule = rule;
+		}
+
+		if (columns.size() != referencedColumns.size())
+			throw new SQLException("Column count of foreign key in table `" + tableName + "` does not match");
+
+		// an unnamed constraint gets the same name InnoDB would give it
+		ForeignKeyInfo foreignKeyInfo = new ForeignKeyInfo(tableName,
+			name != null ? name : tableName + "_ibfk_" + number, referencedSchema, referencedTable, updateRule,
+			deleteRule);
+		for (int j = 0; j < columns.size(); ++j)
+		{
+			foreignKeyInfo.addColumn(columns.get(j), referencedColumns.get(j));
+		}
+		return foreignKeyInfo;
+	}
+
+	private static int findPartitionClause(String createStatement)
+	{
+		int bodyEnd;
+		try
+		{
+			bodyEnd = findClosingParenthesis(createStatement, findBodyStart(createStatement));
+		}
+		catch (SQLException e)
+		{
+			return -1;
+		}
+		Matcher pm = PARTITION_PATTERN.matcher(createStatement);
+		return pm.find(bodyEnd) ? pm.start() : -1;
+	}
+
+	static PartitionInfo parsePartitions(String tableName, String createStatement) throws SQLException
+	{
+		// PARTITION BY method (expr) [PARTITIONS n] [SUBPARTITION BY method (expr) [SUBPARTITIONS n]]
+		// [(PARTITION name VALUES {LESS THAN {(values) | MAXVALUE} | IN (values)} [options] [(subpartitions)], ...)]
+		int start = findPartitionClause(createStatement);
+		if (start < 0)
+			return null;
+		String clause = createStatement.substring(start);
+		clause = clause.substring(clause.toUpperCase().indexOf("BY") + 2);
+		int commentEnd = clause.lastIndexOf("*/");
+		if (commentEnd >= 0)
+			clause = clause.substring(0, commentEnd);
+
+		List<Token> tokens = tokenize(clause);
+		int[] pos = {0};
+		String method = parsePartitionMethod(tokens, pos);
+		String expression = tokens.get(pos[0]++).text;
+		int count = 1;
+		if (pos[0] + 1 < tokens.size() && tokens.get(pos[0]).isWord("PARTITIONS"))
+		{
+			count = Integer.parseInt(tokens.get(pos[0] + 1).text);
+			pos[0] += 2;
+		}
+
+		String subpartitionMethod = null;
+		String subpartitionExpression = null;
+		int subpartitionCount = 0;
+		if (pos[0] + 1 < tokens.size() && tokens.get(pos[0]).isWord("SUBPARTITION"))
+		{
+			pos[0] += 2;
+			subpartitionMethod = parsePartitionMethod(tokens, pos);
+			subpartitionExpression = tokens.get(pos[0]++).text;
+			subpartitionCount = 1;
+			if (pos[0] + 1 < tokens.size() && tokens.get(pos[0]).isWord("SUBPARTITIONS"))
+			{
+				subpartitionCount = Integer.parseInt(tokens.get(pos[0] + 1).text);
+				pos[0] += 2;
+			}
+		}
+
+		List<List<Token>> definitions = new ArrayList<>();
+		if (pos[0] < tokens.size() && tokens.get(pos[0]).type == TokenType.GROUP)
+		{
+			for (String definition : splitTopLevel(tokens.get(pos[0]).text))
+			{
+				List<Token> definitionTokens = tokenize(definition);
+				if (!definitionTokens.isEmpty())
+					definitions.add(definitionTokens);
+			}
+		}
+
+		// explicitly listed subpartitions are only counted, like SUBPARTITIONS n
+		if (subpartitionMethod != null && !definitions.isEmpty())
+		{
+			Token last = definitions.get(0).get(definitions.get(0).size() - 1);
+			if (last.type == TokenType.GROUP && last.text.trim().toUpperCase().startsWith("SUBPARTITION"))
+				subpartitionCount = splitTopLevel(last.text).size();
+		}
+
+		PartitionInfo partitionInfo = new PartitionInfo(tableName, method, expression, subpartitionMethod,
+			subpartitionExpression, subpartitionCount);
+		if (definitions.isEmpty())
+		{
+			// only hashed partitions can be left out, the server names them p0, p1, ...
+			for (int i = 0; i < count; ++i)
+			{
+				partitionInfo.addPartition("p" + i, null);
+			}
+		}
+		for (List<Token> definition : definitions)
+		{
+			if (definition.size() < 2 || !definition.get(0).isWord("PARTITION"))
+				throw new SQLException("Unsupported partition definition in `" + createStatement + "`");
+
+			String description = null;
+			for (int i = 2; i < definition.size(); ++i)
+			{
+				if (definition.get(i).isWord("THAN") || definition.get(i).isWord("IN"))
+				{
+					Token values = definition.get(i + 1);
+					description = values.type == TokenType.GROUP ? values.text.trim() : values.text.toUpperCase();
+					break;
+				}
+			}
+			partitionInfo.addPartition(definition.get(1).text, description);
+		}
+		return partitionInfo;
+	}
+
+	private static String parsePartitionMethod(List<Token> tokens, int[] pos) throws SQLException
+	{
+		// [LINEAR] {HASH | KEY [ALGORITHM=n]} or {RANGE | LIST} [COLUMNS], followed by the expression
+		StringBuilder method = new StringBuilder();
+		while (pos[0] < tokens.size() && tokens.get(pos[0]).type != TokenType.GROUP)
+		{
+			Token token = tokens.get(pos[0]++);
+			if (token.isWord("LINEAR") || token.isWord("HASH") || token.isWord("KEY") || token.isWord("RANGE")
+				|| token.isWord("LIST") || token.isWord("COLUMNS"))
+			{
+				if (method.length() > 0)
+					method.append(' ');
+				method.append(token.text.toUpperCase());
+			}
+		}
+		if (method.length() == 0 || pos[0] >= tokens.size())
+			throw new SQLException("Unsupported partition method in " + tokens.size() + " tokens");
+		return method.toString();
+	}
+
+	private static List<String> getGroupNames(Token group) throws SQLException
+	{
+		List<String> names = new ArrayList<>();
+		for (String part : splitTopLevel(group.text))
+		{
+			List<Token> tokens = tokenize(part);
+			if (!tokens.isEmpty())
+				names.add(tokens.get(0).text);
+		}
+		return names;
+	}
+
+	private static int findBodyStart(String createStatement) throws SQLException
+	{
+		for (int i = 0; i < createStatement.length(); ++i)
+		{
+			char c = createStatement.charAt(i);
+			if (c == '`' || c == '\'' || c == '"')
+			{
+				i = skipQuoted(createStatement, i);
+			}
+			else if (c == '(')
+			{
+				return i;
+			}
+		}
+		throw new SQLException("Could not find column definitions in `" + createStatement + "`");
+	}
+
+	private static int findClosingParenthesis(String text, int start) throws SQLException
+	{
+		int depth = 0;
+		for (int i = start; i < text.length(); ++i)
+		{
+			char c = text.charAt(i);
+			if (c == '`' || c == '\'' || c == '"')
+			{
+				i = skipQuoted(text, i);
+			}
+			else if (c == '(')
+			{
+				depth++;
+			}
+			else if (c == ')')
+			{
+				depth--;
+				if (depth == 0)
+					return i;
+			}
+		}
+		throw new SQLException("Unbalanced parentheses in `" + text + "`");
+	}
+
+	private static int skipQuoted(String text, int start)
+	{
+		char quote = text.charAt(start);
+		for (int i = start + 1; i < text.length(); ++i)
+		{
+			char c = text.charAt(i);
+			if (c == '\\' && quote != '`')
+			{
+				i++;
+			}
+			else if (c == quote)
+			{
+				if (i + 1 < text.length() && text.charAt(i + 1) == quote)
+				{
+					i++;
+				}
+				else
+				{
+					return i;
+				}
+			}
+		}
+		return text.length() - 1;
+	}
+
+	private static List<String> splitTopLevel(String text) throws SQLException
+	{
+		List<String> parts = new ArrayList<>();
+		int depth = 0;
+		int partStart = 0;
+		for (int i = 0; i < text.length(); ++i)
+		{
+			char c = text.charAt(i);
+			if (c == '`' || c == '\'' || c == '"')
+			{
+				i = skipQuoted(text, i);
+			}
+			else if (c == '(')
+			{
+				depth++;
+			}
+			else if (c == ')')
+			{
+				depth--;
+			}
+			else if (c == ',' && depth == 0)
+			{
+				parts.add(text.substring(partStart, i));
+				partStart = i + 1;
+			}
+		}
+		parts.add(text.substring(partStart));
+		return parts;
+	}
+
+	private static List<Token> tokenize(String text)
+	{
+		List<Token> tokens = new ArrayList<>();
+		int i = 0;
+		while (i < text.length())
+		{
+			char c = text.charAt(i);
+			if (Character.isWhitespace(c) || c == ',')
+			{
+				i++;
+			}
+			else if (c == '`' || c == '\'' || c == '"')
+			{
+				int end = skipQuoted(text, i);
+				String content = text.substring(i + 1, Math.max(i + 1, end));
+				if (c == '`')
+				{
+					tokens.add(new Token(TokenType.IDENTIFIER, content.replace("``", "`")));
+				}
+				else
+				{
+					tokens.add(new Token(TokenType.STRING, unescapeString(content, c)));
+				}
+				i = end + 1;
+			}
+			else if ("bBxX".indexOf(c) >= 0 && i + 1 < text.length() && text.charAt(i + 1) == '\'')
+			{
+				// b'0101' and x'0F' are kept as written, like information_schema reports them
+				int end = skipQuoted(text, i + 1);
+				tokens.add(new Token(TokenType.WORD, text.substring(i, end + 1)));
+				i = end + 1;
+			}
+			else if (c == '(')
+			{
+				int end = findClosingParenthesisOrEnd(text, i);
+				tokens.add(new Token(TokenType.GROUP, text.substring(i + 1, end)));
+				i = end + 1;
+			}
+			else
+			{
+				int end = i;
+				while (end < text.length() && !Character.isWhitespace(text.charAt(end))
+					&& "(),`'\"".indexOf(text.charAt(end)) < 0)
+				{
+					end++;
+				}
+				if (end == i)
+				{
+					end++;
+				}
+				tokens.add(new Token(TokenType.WORD, text.substring(i, end)));
+				i = end;
+			}
+		}
+		return tokens;
+	}
+
+	private static int findClosingParenthesisOrEnd(String text, int start)
+	{
+		try
+		{
+			return findClosingParenthesis(text, start);
+		}
+		catch (SQLException e)
+		{
+			return text.length();
+		}
+	}
+
+	private static String unescapeString(String content, char quote)
+	{
+		StringBuilder output = new StringBuilder();
+		for (int i = 0; i < content.length(); ++i)
+		{
+			char c = content.charAt(i);
+			if (c == '\\' && i + 1 < content.length())
+			{
+				char n = content.charAt(++i);
+				switch (n)
+				{
+					case 'n':
+						output.append('\n');
+						break;
+					case 't':
+						output.append('\t');
+						break;
+					case 'r':
+						output.append('\r');
+						break;
+					case '0':
+						output.append('\0');
+						break;
+					default:
+						output.append(n);
+						break;
+				}
+			}
+			else if (c == quote && i + 1 < content.length() && content.charAt(i + 1) == quote)
+			{
+				output.append(c);
+				i++;
+			}
+			else
+			{
+				output.append(c);
+			}
+		}
+		return output.toString();
+	}
+
+	private enum TokenType
+	{
+		WORD,
+		IDENTIFIER,
+		STRING,
+		GROUP,
+	}
+
+	private static class Token
+	{
+		final TokenType type;
+		final String text;
+
+		Token(TokenType type, String text)
+		{
+			this.type = type;
+			this.text = text;
+		}
+
+		boolean isWord(String word)
+		{
+			return type == TokenType.WORD && text.equalsIgnoreCase(word);
+		}
+	}
+
+	public static class Result
+	{
+		private final TableInfo tableInfo;
+		private final NamedObjectList<FieldInfo> fields;
+		private final HashMap<String, KeyInfo> keys;
+		private final NamedObjectList<ForeignKeyInfo> foreignKeys;
+		private final PartitionInfo partitionInfo;
+
+		Result(TableInfo tableInfo, NamedObjectList<FieldInfo> fields, HashMap<String, KeyInfo> keys,
+			NamedObjectList<ForeignKeyInfo> foreignKeys, PartitionInfo partitionInfo)
+		{
+			this.tableInfo = tableInfo;
+			this.fields = fields;
+			this.keys = keys;
+			this.foreignKeys = foreignKeys;
+			this.partitionInfo = partitionInfo;
+		}
+
+		public TableInfo getTableInfo()
+		{
+			return tableInfo;
+		}
+
+		NamedObjectList<FieldInfo> getFields()
+		{
+			return fields;
+		}
+
+		HashMap<String, KeyInfo> getKeys()
+		{
+			return keys;
+		}
+
+		NamedObjectList<ForeignKeyInfo> getForeignKeys()
+		{
+			return foreignKeys;
+		}
+
+		// null for a table without partitions
+		PartitionInfo getPartitionInfo()
+		{
+			return partitionInfo;
+		}
+	}
+}
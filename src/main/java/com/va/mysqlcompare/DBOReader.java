@@ -15,173 +15,1659 @@
  */
 package com.va.mysqlcompare;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-public class DBOReader
+public class DBOReader implements AutoCloseable
 {
+	private static final Logger LOG = LoggerFactory.getLogger(DBOReader.class);
+
+	// the bulk queries take a list of schemas (IN (%s)) and the predicates of the object filter (%s)
+	private static final String SQL_TABLES = "SELECT TABLE_SCHEMA, TABLE_NAME, TABLE_TYPE, ENGINE, TABLE_COLLATION, " +
+		"CREATE_TIME, UPDATE_TIME, TABLE_ROWS, DATA_LENGTH FROM information_schema.TABLES " +
+		"WHERE TABLE_SCHEMA IN (%s)%s ORDER BY TABLE_SCHEMA, TABLE_NAME";
+	private static final String SQL_ROUTINES = "SELECT ROUTINE_SCHEMA, ROUTINE_NAME, ROUTINE_TYPE, CREATED, " +
+		"LAST_ALTERED FROM information_schema.ROUTINES WHERE ROUTINE_SCHEMA IN (%s)%s " +
+		"ORDER BY ROUTINE_SCHEMA, ROUTINE_TYPE, ROUTINE_NAME";
+	private static final String SQL_ALL_FIELDS = "SELECT * FROM information_schema.COLUMNS " +
+		"WHERE TABLE_SCHEMA IN (%s)%s ORDER BY TABLE_SCHEMA, TABLE_NAME, ORDINAL_POSITION";
+	// aliases match the column names of SHOW KEYS so KeyInfo can read both
+	private static final String SQL_ALL_KEYS = "SELECT TABLE_SCHEMA, TABLE_NAME AS `Table`, INDEX_NAME AS Key_name, " +
+		"NON_UNIQUE AS Non_unique, COLUMN_NAME AS Column_name, SUB_PART AS Sub_part " +
+		"FROM information_schema.STATISTICS WHERE TABLE_SCHEMA IN (%s)%s " +
+		"ORDER BY TABLE_SCHEMA, TABLE_NAME, INDEX_NAME, SEQ_IN_INDEX";
+	private static final String SQL_ROUTINE_DEFINITIONS = "SELECT ROUTINE_SCHEMA, ROUTINE_NAME, ROUTINE_TYPE, " +
+		"DTD_IDENTIFIER, ROUTINE_DEFINITION, IS_DETERMINISTIC, SQL_DATA_ACCESS, SECURITY_TYPE, ROUTINE_COMMENT " +
+		"FROM information_schema.ROUTINES WHERE ROUTINE_SCHEMA IN (%s)%s " +
+		"ORDER BY ROUTINE_SCHEMA, ROUTINE_TYPE, ROUTINE_NAME";
+	// one digest per base table over everything the compare looks at: options, columns and keys
+	private static final String SQL_TABLE_DIGESTS = "SELECT t.TABLE_NAME, MD5(CONCAT_WS('|', t.ENGINE, " +
+		"t.TABLE_COLLATION, c.COLUMN_LIST, IFNULL(s.KEY_LIST, ''))) AS DIGEST " +
+		"FROM information_schema.TABLES t " +
+		"JOIN (SELECT TABLE_NAME, GROUP_CONCAT(CONCAT_WS(',', LOWER(COLUMN_NAME), COLUMN_TYPE, " +
+		"IFNULL(COLLATION_NAME, ''), IS_NULLABLE, IFNULL(CONCAT('=', COLUMN_DEFAULT), ''), EXTRA) " +
+		"ORDER BY ORDINAL_POSITION SEPARATOR ';') AS COLUMN_LIST " +
+		"FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = ?%s GROUP BY TABLE_NAME) c " +
+		"ON c.TABLE_NAME = t.TABLE_NAME " +
+		"LEFT JOIN (SELECT TABLE_NAME, GROUP_CONCAT(CONCAT_WS(',', LOWER(INDEX_NAME), NON_UNIQUE, " +
+		"COLUMN_NAME, IFNULL(SUB_PART, '')) ORDER BY LOWER(INDEX_NAME), SEQ_IN_INDEX SEPARATOR ';') AS KEY_LIST " +
+		"FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = ?%s GROUP BY TABLE_NAME) s " +
+		"ON s.TABLE_NAME = t.TABLE_NAME " +
+		"WHERE t.TABLE_SCHEMA = ? AND t.TABLE_TYPE = 'BASE TABLE'%s";
+	private static final String SQL_PROBE_SCHEMA = "SELECT COUNT(*) FROM information_schema.COLUMNS " +
+		"WHERE TABLE_SCHEMA = ?";
+	private static final String SQL_PROBE_TABLE = "SELECT COUNT(*) FROM information_schema.COLUMNS " +
+		"WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ?";
+	// ACTION_ORDER only exists since 5.7.2, ordering by the name keeps the same result on older servers
+	private static final String SQL_TRIGGERS = "SELECT TRIGGER_SCHEMA, TRIGGER_NAME, EVENT_OBJECT_TABLE, " +
+		"ACTION_TIMING, EVENT_MANIPULATION, ACTION_STATEMENT FROM information_schema.TRIGGERS " +
+		"WHERE TRIGGER_SCHEMA IN (%s)%s ORDER BY TRIGGER_SCHEMA, EVENT_OBJECT_TABLE, TRIGGER_NAME";
+	// REFERENTIAL_CONSTRAINTS has the rules, KEY_COLUMN_USAGE the column pairs in their order
+	private static final String SQL_FOREIGN_KEYS = "SELECT rc.CONSTRAINT_SCHEMA, rc.TABLE_NAME, rc.CONSTRAINT_NAME, " +
+		"rc.UPDATE_RULE, rc.DELETE_RULE, k.COLUMN_NAME, k.REFERENCED_TABLE_SCHEMA, k.REFERENCED_TABLE_NAME, " +
+		"k.REFERENCED_COLUMN_NAME FROM information_schema.REFERENTIAL_CONSTRAINTS rc " +
+		"JOIN information_schema.KEY_COLUMN_USAGE k ON k.CONSTRAINT_SCHEMA = rc.CONSTRAINT_SCHEMA " +
+		"AND k.TABLE_NAME = rc.TABLE_NAME AND k.CONSTRAINT_NAME = rc.CONSTRAINT_NAME " +
+		"WHERE rc.CONSTRAINT_SCHEMA IN (%s)%s " +
+		"ORDER BY rc.CONSTRAINT_SCHEMA, rc.TABLE_NAME, rc.CONSTRAINT_NAME, k.ORDINAL_POSITION";
+	// one row per subpartition, the rows of one partition follow each other
+	private static final String SQL_PARTITIONS = "SELECT TABLE_SCHEMA, TABLE_NAME, PARTITION_NAME, " +
+		"PARTITION_METHOD, PARTITION_EXPRESSION, SUBPARTITION_METHOD, SUBPARTITION_EXPRESSION, " +
+		"PARTITION_DESCRIPTION FROM information_schema.PARTITIONS " +
+		"WHERE TABLE_SCHEMA IN (%s) AND PARTITION_NAME IS NOT NULL%s " +
+		"ORDER BY TABLE_SCHEMA, TABLE_NAME, PARTITION_ORDINAL_POSITION, SUBPARTITION_ORDINAL_POSITION";
+	private static final String SQL_DEFAULT_COLLATIONS = "SELECT CHARACTER_SET_NAME, COLLATION_NAME " +
+		"FROM information_schema.COLLATIONS WHERE IS_DEFAULT = 'Yes'";
+	private static final String SQL_PARAMETERS = "SELECT SPECIFIC_SCHEMA, SPECIFIC_NAME, ROUTINE_TYPE, " +
+		"PARAMETER_MODE, PARAMETER_NAME, DTD_IDENTIFIER FROM information_schema.PARAMETERS " +
+		"WHERE SPECIFIC_SCHEMA IN (%s) AND ORDINAL_POSITION > 0%s " +
+		"ORDER BY SPECIFIC_SCHEMA, ROUTINE_TYPE, SPECIFIC_NAME, ORDINAL_POSITION";
+
 	private final Connection connection;
+	private final List<Connection> connections;
+	private int batchSize = ConnectionInfo.DEFAULT_BATCH_SIZE;
+	private int maxPacketSize = 0;
+	private boolean childrenFromCreateStatement = false;
+	private boolean groupConcatExtended = false;
+	private boolean adaptive = true;
+	private FetchPlanner planner;
+	private Collations collations;
+	private int queryTimeout = ConnectionInfo.DEFAULT_QUERY_TIMEOUT;
+	private volatile boolean cancelled = false;
+	private QueryThrottle throttle;
+	private ObjectFilter filter = new ObjectFilter();
+	private MetadataCache cache;
+	private String serverId;
+	private final Map<String, MetadataCache.SchemaEntry> cacheEntries = new ConcurrentHashMap<>();
+	private final Map<String, HashMap<String, String>> tableDigests = new ConcurrentHashMap<>();
+	private final Set<Statement> activeStatements = ConcurrentHashMap.newKeySet();
+	private final Map<Statement, HeldPermit> heldPermits = new ConcurrentHashMap<>();
+	private final HashMap<String, PreparedStatement> statements = new HashMap<>();
+	private ExecutorService workers;
+	private boolean ownWorkers = false;
+
+	public DBOReader(Connection connection)
+	{
+		this(Collections.singletonList(connection));
+	}
+
+	public DBOReader(List<Connection> connections)
+	{
+		this.connection = connections.get(0);
+		this.connections = connections;
+	}
+
+	public int getBatchSize()
+	{
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize)
+	{
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	public int getConnectionCount()
+	{
+		return connections.size();
+	}
+
+	public boolean isChildrenFromCreateStatement()
+	{
+		return childrenFromCreateStatement;
+	}
+
+	public void setChildrenFromCreateStatement(boolean childrenFromCreateStatement)
+	{
+		this.childrenFromCreateStatement = childrenFromCreateStatement;
+	}
+
+	public void setFetchMode(ConnectionInfo.FetchMode fetchMode)
+	{
+		setChildrenFromCreateStatement(fetchMode == ConnectionInfo.FetchMode.CREATE_STATEMENT);
+		setAdaptive(fetchMode == ConnectionInfo.FetchMode.ADAPTIVE);
+	}
+
+	public void setWorkers(ExecutorService workers)
+	{
+		this.workers = workers;
+	}
+
+	public int getQueryTimeout()
+	{
+		return queryTimeout;
+	}
+
+	public void setQueryTimeout(int queryTimeout)
+	{
+		this.queryTimeout = Math.max(0, queryTimeout);
+	}
+
+	public QueryThrottle getThrottle()
+	{
+		return throttle;
+	}
+
+	public void setThrottle(QueryThrottle throttle)
+	{
+		this.throttle = throttle;
+	}
+
+	public ObjectFilter getFilter()
+	{
+		return filter;
+	}
+
+	public void setFilter(ObjectFilter filter)
+	{
+		this.filter = filter;
+	}
+
+	public MetadataCache getCache()
+	{
+		return cache;
+	}
+
+	public void setCache(MetadataCache cache, String serverId)
+	{
+		this.cache = cache;
+		this.serverId = serverId;
+	}
+
+	public boolean isCancelled()
+	{
+		return cancelled;
+	}
+
+	public void cancel()
+	{
+		cancelled = true;
+
+		// the driver sends KILL QUERY over a separate connection for every statement still executing
+		for (Statement stmt : activeStatements)
+		{
+			try
+			{
+				stmt.cancel();
+			}
+			catch (SQLException e)
+			{
+				LOG.warn("Could not cancel statement", e);
+			}
+		}
+	}
+
+	public boolean isAdaptive()
+	{
+		return adaptive;
+	}
+
+	public void setAdaptive(boolean adaptive)
+	{
+		this.adaptive = adaptive;
+	}
+
+	SchemaModel readSchema(String databaseName) throws SQLException
+	{
+		return readSchema(readCatalog(databaseName));
+	}
+
+	SchemaModel readSchema(SchemaCatalog catalog) throws SQLException
+	{
+		if (cache != null)
+		{
+			// all tables in detail, but only the ones changed since the last run are read from the server
+			Set<String> tableNames = new HashSet<>();
+			catalog.getTables().forEach((entry) -> tableNames.add(entry.getName().toLowerCase()));
+			return readSchema(catalog, tableNames);
+		}
+
+		final String databaseName = catalog.getDatabaseName();
+
+		NamedObjectList<TableInfo> tables;
+		HashMap<String, NamedObjectList<FieldInfo>> tableFields;
+		HashMap<String, HashMap<String, KeyInfo>> tableKeys;
+		if (childrenFromCreateStatement)
+		{
+			tables = new NamedObjectList<>();
+			tableFields = new HashMap<>();
+			tableKeys = new HashMap<>();
+			for (CreateTableParser.Result parsed : readParsedTables(catalog))
+			{
+				tables.add(parsed.getTableInfo());
+				tableFields.put(parsed.getTableInfo().getName().toLowerCase(), parsed.getFields());
+				tableKeys.put(parsed.getTableInfo().getName().toLowerCase(), parsed.getKeys());
+			}
+		}
+		else
+		{
+			tables = readTables(catalog);
+			tableFields = new HashMap<>();
+			tableKeys = new HashMap<>();
+			readPlannedTableChildren(catalog, tableFields, tableKeys);
+		}
+
+		return new SchemaModel(catalog, tables, tableFields, tableKeys, readViews(catalog),
+			readPlannedProcedures(catalog), readTriggers(databaseName), readForeignKeys(databaseName),
+			readPartitions(databaseName));
+	}
+
+	Map<String, SchemaModel> readSchemas(List<String> databaseNames) throws SQLException
+	{
+		// one query per object type for all schemas, so hundreds of small schemas cost about as much as a
+		// single large one, the table children are always read in bulk for the same reason
+		Map<String, SchemaCatalog> catalogsByName = readCatalogs(databaseNames);
+		List<SchemaCatalog> catalogs = new ArrayList<>();
+		for (String databaseName : databaseNames)
+		{
+			catalogs.add(catalogsByName.get(databaseName));
+		}
+
+		List<NamedObjectList<TableInfo>> schemaTables = new ArrayList<>();
+		List<HashMap<String, NamedObjectList<FieldInfo>>> schemaFields = new ArrayList<>();
+		List<HashMap<String, HashMap<String, KeyInfo>>> schemaKeys = new ArrayList<>();
+		if (childrenFromCreateStatement)
+		{
+			for (List<CreateTableParser.Result> parsedTables : readParsedTables(catalogs))
+			{
+				NamedObjectList<TableInfo> tables = new NamedObjectList<>();
+				HashMap<String, NamedObjectList<FieldInfo>> tableFields = new HashMap<>();
+				HashMap<String, HashMap<String, KeyInfo>> tableKeys = new HashMap<>();
+				for (CreateTableParser.Result parsed : parsedTables)
+				{
+					tables.add(parsed.getTableInfo());
+					tableFields.put(parsed.getTableInfo().getName().toLowerCase(), parsed.getFields());
+					tableKeys.put(parsed.getTableInfo().getName().toLowerCase(), parsed.getKeys());
+				}
+				schemaTables.add(tables);
+				schemaFields.add(tableFields);
+				schemaKeys.add(tableKeys);
+			}
+		}
+		else
+		{
+			schemaTables = readTables(catalogs);
+			Map<String, HashMap<String, NamedObjectList<FieldInfo>>> allFields = readAllFields(databaseNames);
+			Map<String, HashMap<String, HashMap<String, KeyInfo>>> allKeys = readAllKeys(databaseNames);
+			for (String databaseName : databaseNames)
+			{
+				schemaFields.add(allFields.get(databaseName));
+				schemaKeys.add(allKeys.get(databaseName));
+			}
+		}
+
+		List<NamedObjectList<ViewInfo>> schemaViews = readViews(catalogs);
+		List<NamedObjectList<ProcedureInfo>> schemaProcedures = readAllProcedures(catalogs);
+		Map<String, NamedObjectList<TriggerInfo>> schemaTriggers = readAllTriggers(databaseNames);
+		Map<String, NamedObjectList<ForeignKeyInfo>> schemaForeignKeys = readAllForeignKeys(databaseNames);
+		Map<String, NamedObjectList<PartitionInfo>> schemaPartitions = readAllPartitions(databaseNames);
+
+		Map<String, SchemaModel> output = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		for (int i = 0; i < catalogs.size(); ++i)
+		{
+			output.put(catalogs.get(i).getDatabaseName(), new SchemaModel(catalogs.get(i), schemaTables.get(i),
+				schemaFields.get(i), schemaKeys.get(i), schemaViews.get(i), schemaProcedures.get(i),
+				schemaTriggers.get(catalogs.get(i).getDatabaseName()),
+				schemaForeignKeys.get(catalogs.get(i).getDatabaseName()),
+				schemaPartitions.get(catalogs.get(i).getDatabaseName())));
+		}
+		return output;
+	}
+
+	// the columns and keys of all tables, per table or in bulk as the fetch mode and the fetch plan decide
+	void readPlannedTableChildren(SchemaCatalog catalog, HashMap<String, NamedObjectList<FieldInfo>> tableFields,
+		HashMap<String, HashMap<String, KeyInfo>> tableKeys) throws SQLException
+	{
+		if (adaptive)
+		{
+			readTableChildren(catalog, tableFields, tableKeys);
+		}
+		else
+		{
+			tableFields.putAll(readAllFields(catalog.getDatabaseName()));
+			tableKeys.putAll(readAllKeys(catalog.getDatabaseName()));
+		}
+	}
+
+	private void readTableChildren(SchemaCatalog catalog, HashMap<String, NamedObjectList<FieldInfo>> tableFields,
+		HashMap<String, HashMap<String, KeyInfo>> tableKeys) throws SQLException
+	{
+		final String objectType = "table children";
+		final FetchPlanner planner = getPlanner(catalog);
+
+		List<SchemaCatalog.Entry> entries = new ArrayList<>(catalog.getTables().size());
+		catalog.getTables().forEach(entries::add);
+
+		// the plan is checked again after every slice, so a slow server can still be switched to bulk reading
+		final int sliceSize = Math.max(1, batchSize * connections.size() / 2);
+		FetchPlanner.Strategy strategy = planner.plan(objectType, entries.size(), 2, 2);
+		int index = 0;
+		while (index < entries.size() && strategy == FetchPlanner.Strategy.BATCHED)
+		{
+			List<SchemaCatalog.Entry> slice = entries.subList(index, Math.min(entries.size(), index + sliceSize));
+			long start = System.nanoTime();
+			readBatchedChildren(catalog.getDatabaseName(), slice, tableFields, tableKeys);
+			index += slice.size();
+
+			if (planner.observe(objectType, strategy, slice.size(), 2, 2, System.nanoTime() - start))
+				strategy = planner.plan(objectType, entries.size() - index, 2, 2);
+		}
+
+		if (index < entries.size())
+		{
+			long start = System.nanoTime();
+			readAllFields(catalog.getDatabaseName()).forEach(tableFields::putIfAbsent);
+			readAllKeys(catalog.getDatabaseName()).forEach(tableKeys::putIfAbsent);
+			planner.observe(objectType, strategy, entries.size() - index, 2, 2, System.nanoTime() - start);
+		}
+	}
+
+	private void readBatchedChildren(String databaseName, List<SchemaCatalog.Entry> entries,
+		HashMap<String, NamedObjectList<FieldInfo>> tableFields,
+		HashMap<String, HashMap<String, KeyInfo>> tableKeys) throws SQLException
+	{
+		List<String> queries = new ArrayList<>();
+		for (SchemaCatalog.Entry entry : entries)
+		{
+			queries.add("SELECT * FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = " +
+				quoteString(databaseName) + " AND TABLE_NAME = " + quoteString(entry.getName()) +
+				" ORDER BY ORDINAL_POSITION");
+			queries.add("SHOW KEYS FROM " + quoteIdentifier(databaseName) + "." + quoteIdentifier(entry.getName()));
+		}
+		List<Object> results = executeBatched(queries, (index, result) ->
+		{
+			String tableName = entries.get(index / 2).getName();
+			if (index % 2 == 0)
+			{
+				NamedObjectList<FieldInfo> fields = new NamedObjectList<>();
+				String lastFieldName = null;
+				while (result.next())
+				{
+					final FieldInfo fieldInfo = new FieldInfo(tableName, result, lastFieldName);
+					fields.add(fieldInfo);
+					lastFieldName = fieldInfo.getName();
+				}
+				return fields;
+			}
+
+			HashMap<String, KeyInfo> keys = new HashMap<>();
+			while (result.next())
+			{
+				addKeyRow(keys, result);
+			}
+			return keys;
+		});
+
+		for (int i = 0; i < entries.size(); ++i)
+		{
+			String tableName = entries.get(i).getName().toLowerCase();
+			@SuppressWarnings("unchecked")
+			NamedObjectList<FieldInfo> fields = (NamedObjectList<FieldInfo>)results.get(i * 2);
+			@SuppressWarnings("unchecked")
+			HashMap<String, KeyInfo> keys = (HashMap<String, KeyInfo>)results.get(i * 2 + 1);
+			tableFields.put(tableName, fields);
+			tableKeys.put(tableName, keys);
+		}
+	}
+
+	NamedObjectList<ProcedureInfo> readPlannedProcedures(SchemaCatalog catalog) throws SQLException
+	{
+		if (cache != null)
+			return readCachedProcedures(catalog);
+		if (!adaptive)
+			return readAllProcedures(catalog);
+
+		final String objectType = "routines";
+		final FetchPlanner planner = getPlanner(catalog);
+
+		final int count = catalog.getRoutines().size();
+		FetchPlanner.Strategy strategy = planner.plan(objectType, count, 1, 2);
+		long start = System.nanoTime();
+		NamedObjectList<ProcedureInfo> procedures = strategy == FetchPlanner.Strategy.BULK
+			? readAllProcedures(catalog)
+			: readProcedures(catalog);
+		planner.observe(objectType, strategy, count, 1, 2, System.nanoTime() - start);
+		return procedures;
+	}
+
+	// the defaults of the server, a create statement leaves out a collation which is the default of its charset
+	public synchronized Collations getCollations() throws SQLException
+	{
+		if (collations == null)
+		{
+			HashMap<String, String> defaults = new HashMap<>();
+			try (ResultSet result = executeQuery(SQL_DEFAULT_COLLATIONS))
+			{
+				while (result.next())
+				{
+					defaults.put(result.getString(1), result.getString(2));
+				}
+			}
+			collations = new Collations(defaults);
+		}
+		return collations;
+	}
+
+	private FetchPlanner getPlanner(SchemaCatalog catalog) throws SQLException
+	{
+		if (planner == null)
+		{
+			planner = probeServer(catalog);
+			LOG.info("Fetch cost model: {}", planner);
+		}
+		return planner;
+	}
+
+	private FetchPlanner probeServer(SchemaCatalog catalog) throws SQLException
+	{
+		String version = null;
+		long roundTrip = Long.MAX_VALUE;
+		for (int i = 0; i < 3; ++i)
+		{
+			long start = System.nanoTime();
+			try (ResultSet result = executeQuery("SELECT VERSION()"))
+			{
+				result.next();
+				version = result.getString(1);
+			}
+			roundTrip = Math.min(roundTrip, System.nanoTime() - start);
+		}
+
+		// the first execution of a query also prepares it, which costs one more round trip
+		long start = System.nanoTime();
+		try (ResultSet result = executeQuery(SQL_PROBE_SCHEMA, catalog.getDatabaseName()))
+		{
+			result.next();
+		}
+		long bulkQuery = System.nanoTime() - start - roundTrip;
+
+		long objectQuery = roundTrip;
+		for (SchemaCatalog.Entry entry : catalog.getTables())
+		{
+			start = System.nanoTime();
+			try (ResultSet result = executeQuery(SQL_PROBE_TABLE, catalog.getDatabaseName(), entry.getName()))
+			{
+				result.next();
+			}
+			objectQuery = System.nanoTime() - start - roundTrip;
+			break;
+		}
+
+		return new FetchPlanner(version, roundTrip, objectQuery, bulkQuery, batchSize, connections.size());
+	}
+
+	SchemaModel readSchema(SchemaCatalog catalog, Set<String> detailTables) throws SQLException
+	{
+		// only the given tables are read in detail, all others are taken from the catalog
+		SchemaModel details = readTableDetails(catalog, detailTables);
+
+		NamedObjectList<TableInfo> tables = new NamedObjectList<>();
+		HashMap<String, NamedObjectList<FieldInfo>> tableFields = new HashMap<>();
+		HashMap<String, HashMap<String, KeyInfo>> tableKeys = new HashMap<>();
+		HashSet<String> summaryTables = new HashSet<>();
+		for (SchemaCatalog.Entry entry : catalog.getTables())
+		{
+			if (details.getTables().contains(entry.getName()))
+			{
+				tables.add(details.getTables().get(entry.getName()));
+				tableFields.put(entry.getName().toLowerCase(), details.getFields(entry.getName()));
+				tableKeys.put(entry.getName().toLowerCase(), details.getKeys(entry.getName()));
+			}
+			else
+			{
+				tables.add(entry.toTableInfo());
+				summaryTables.add(entry.getName().toLowerCase());
+			}
+		}
+
+		return new SchemaModel(catalog, tables, tableFields, tableKeys, readViews(catalog),
+			readPlannedProcedures(catalog), readTriggers(catalog.getDatabaseName()),
+			readForeignKeys(catalog.getDatabaseName()), readPartitions(catalog.getDatabaseName()), summaryTables);
+	}
+
+	SchemaModel readTableDetails(SchemaCatalog catalog, Set<String> tableNames) throws SQLException
+	{
+		SchemaCatalog detailCatalog = catalog.filterTables(tableNames);
+		MetadataCache.SchemaEntry cacheEntry = getCacheEntry(catalog);
+		HashMap<String, String> digests = cacheEntry != null ? getTableDigests(catalog.getDatabaseName()) : null;
+
+		HashMap<String, MetadataCache.CachedTable> cachedTables = new HashMap<>();
+		Set<String> missingTables = new HashSet<>();
+		for (SchemaCatalog.Entry entry : detailCatalog.getTables())
+		{
+			final String tableName = entry.getName().toLowerCase();
+			MetadataCache.CachedTable cached = cacheEntry != null
+				? cacheEntry.getTable(entry, digests.get(tableName))
+				: null;
+			if (cached != null)
+				cachedTables.put(tableName, cached);
+			else
+				missingTables.add(tableName);
+		}
+
+		SchemaCatalog missingCatalog = catalog.filterTables(missingTables);
+		List<CreateTableParser.Result> parsedTables = readParsedTables(missingCatalog);
+		HashMap<String, CreateTableParser.Result> parsedByName = new HashMap<>();
+		int index = 0;
+		for (SchemaCatalog.Entry entry : missingCatalog.getTables())
+		{
+			CreateTableParser.Result parsed = parsedTables.get(index++);
+			parsedByName.put(entry.getName().toLowerCase(), parsed);
+			if (cacheEntry != null)
+			{
+				cacheEntry.putTable(entry, digests.get(entry.getName().toLowerCase()), parsed.getTableInfo(),
+					parsed.getFields(), parsed.getKeys());
+			}
+		}
+
+		if (cacheEntry != null && !cachedTables.isEmpty())
+		{
+			LOG.info("Took {} of {} tables of {} from the metadata cache", cachedTables.size(),
+				detailCatalog.getTables().size(), catalog.getDatabaseName());
+		}
+
+		NamedObjectList<TableInfo> tables = new NamedObjectList<>();
+		HashMap<String, NamedObjectList<FieldInfo>> tableFields = new HashMap<>();
+		HashMap<String, HashMap<String, KeyInfo>> tableKeys = new HashMap<>();
+		for (SchemaCatalog.Entry entry : detailCatalog.getTables())
+		{
+			final String tableName = entry.getName().toLowerCase();
+			MetadataCache.CachedTable cached = cachedTables.get(tableName);
+			if (cached != null)
+			{
+				tables.add(cached.getTableInfo());
+				tableFields.put(tableName, cached.getFields());
+				tableKeys.put(tableName, cached.getKeys());
+			}
+			else
+			{
+				CreateTableParser.Result parsed = parsedByName.get(tableName);
+				tables.add(parsed.getTableInfo());
+				tableFields.put(tableName, parsed.getFields());
+				tableKeys.put(tableName, parsed.getKeys());
+			}
+		}
+
+		return new SchemaModel(detailCatalog, tables, tableFields, tableKeys, new NamedObjectList<>(),
+			new NamedObjectList<>());
+	}
+
+	private NamedObjectList<ProcedureInfo> readCachedProcedures(SchemaCatalog catalog) throws SQLException
+	{
+		MetadataCache.SchemaEntry cacheEntry = getCacheEntry(catalog);
+
+		NamedObjectList<ProcedureInfo> procedures = new NamedObjectList<>();
+		List<SchemaCatalog.Entry> missingRoutines = new ArrayList<>();
+		for (SchemaCatalog.Entry entry : catalog.getRoutines())
+		{
+			ProcedureInfo cached = cacheEntry.getRoutine(entry);
+			if (cached != null)
+				procedures.add(cached);
+			else
+				missingRoutines.add(entry);
+		}
+
+		NamedObjectList<ProcedureInfo> fetched = new NamedObjectList<>();
+		readProcedures(catalog.getDatabaseName(), missingRoutines, fetched);
+		for (SchemaCatalog.Entry entry : missingRoutines)
+		{
+			ProcedureInfo procedureInfo = fetched.get(entry.getName());
+			procedures.add(procedureInfo);
+			cacheEntry.putRoutine(entry, procedureInfo);
+		}
+		return procedures;
+	}
+
+	private MetadataCache.SchemaEntry getCacheEntry(SchemaCatalog catalog)
+	{
+		if (cache == null)
+			return null;
+
+		return cacheEntries.computeIfAbsent(catalog.getDatabaseName().toLowerCase(), (key) ->
+		{
+			MetadataCache.SchemaEntry entry = cache.load(serverId, catalog.getDatabaseName());
+			entry.retain(catalog);
+			return entry;
+		});
+	}
+
+	private HashMap<String, String> getTableDigests(String databaseName) throws SQLException
+	{
+		// a compare in two phases has read them already
+		HashMap<String, String> digests = tableDigests.get(databaseName.toLowerCase());
+		return digests != null ? digests : readTableDigests(databaseName);
+	}
+
+	HashMap<String, String> readTableDigests(String databaseName) throws SQLException
+	{
+		if (!groupConcatExtended)
+		{
+			// the default of 1024 bytes would silently cut the column lists of wide tables
+			Statement stmt = createStatement(connection);
+			try
+			{
+				execute(stmt, "SET SESSION group_concat_max_len = @@global.max_allowed_packet", 1);
+			}
+			finally
+			{
+				closeStatement(stmt);
+			}
+			groupConcatExtended = true;
+		}
+
+		ObjectFilter.SqlCondition columnsCondition = filter.toSql("TABLE_NAME", SchemaCatalog.ObjectType.TABLE);
+		ObjectFilter.SqlCondition tablesCondition = filter.toSql("t.TABLE_NAME", SchemaCatalog.ObjectType.TABLE);
+		List<String> parameters = new ArrayList<>();
+		for (ObjectFilter.SqlCondition condition : Arrays.asList(columnsCondition, columnsCondition, tablesCondition))
+		{
+			parameters.add(databaseName);
+			parameters.addAll(condition.getParameters());
+		}
+		String sql = String.format(SQL_TABLE_DIGESTS, columnsCondition.getClause(), columnsCondition.getClause(),
+			tablesCondition.getClause());
+
+		HashMap<String, String> digests = new HashMap<>();
+		try (ResultSet result = executeQuery(sql, parameters.toArray(new String[0])))
+		{
+			while (result.next())
+			{
+				digests.put(result.getString("TABLE_NAME").toLowerCase(), result.getString("DIGEST"));
+			}
+		}
+		tableDigests.put(databaseName.toLowerCase(), digests);
+		return digests;
+	}
+
+	SchemaCatalog readCatalog(String databaseName) throws SQLException
+	{
+		return readCatalogs(Collections.singletonList(databaseName)).get(databaseName);
+	}
+
+	Map<String, SchemaCatalog> readCatalogs(Collection<String> databaseNames) throws SQLException
+	{
+		Map<String, SchemaCatalog> catalogs = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		for (String databaseName : databaseNames)
+		{
+			catalogs.put(databaseName, new SchemaCatalog(databaseName));
+		}
+
+		// everything else is read for the catalog entries, so the filter only needs to be applied here completely
+		try (ResultSet result = executeFilteredQuery(SQL_TABLES, databaseNames, "TABLE_NAME",
+			SchemaCatalog.ObjectType.TABLE, SchemaCatalog.ObjectType.VIEW))
+		{
+			while (result.next())
+			{
+				final SchemaCatalog.ObjectType type;
+				if ("BASE TABLE".equals(result.getString("TABLE_TYPE")))
+					type = SchemaCatalog.ObjectType.TABLE;
+				else if ("VIEW".equals(result.getString("TABLE_TYPE")))
+					type = SchemaCatalog.ObjectType.VIEW;
+				else
+					continue;
+
+				if (!filter.accepts(type, result.getString("TABLE_NAME")))
+					continue;
+
+				catalogs.get(result.getString("TABLE_SCHEMA")).add(new SchemaCatalog.Entry(
+					result.getString("TABLE_NAME"), type, result.getString("ENGINE"),
+					result.getString("TABLE_COLLATION"), result.getTimestamp("CREATE_TIME"),
+					result.getTimestamp("UPDATE_TIME"), getLong(result, "TABLE_ROWS"), getLong(result, "DATA_LENGTH")));
+			}
+		}
+
+		try (ResultSet result = executeFilteredQuery(SQL_ROUTINES, databaseNames, "ROUTINE_NAME",
+			SchemaCatalog.ObjectType.FUNCTION, SchemaCatalog.ObjectType.PROCEDURE))
+		{
+			while (result.next())
+			{
+				SchemaCatalog.ObjectType type = SchemaCatalog.ObjectType.valueOf(result.getString("ROUTINE_TYPE"));
+				if (!filter.accepts(type, result.getString("ROUTINE_NAME")))
+					continue;
+
+				catalogs.get(result.getString("ROUTINE_SCHEMA")).add(new SchemaCatalog.Entry(
+					result.getString("ROUTINE_NAME"), type, null, null, result.getTimestamp("CREATED"),
+					result.getTimestamp("LAST_ALTERED"), null, null));
+			}
+		}
+		return catalogs;
+	}
+
+	NamedObjectList<TableInfo> readTables(SchemaCatalog catalog) throws SQLException
+	{
+		return readTables(Collections.singletonList(catalog)).get(0);
+	}
+
+	List<NamedObjectList<TableInfo>> readTables(List<SchemaCatalog> catalogs) throws SQLException
+	{
+		final Collations defaults = getCollations();
+		return readCreateStatements(catalogs, SchemaCatalog::getTables, "TABLE", (result) ->
+			CreateTableParser.parseTableInfo(result.getString(1), result.getString(2), defaults));
+	}
+
+	List<CreateTableParser.Result> readParsedTables(SchemaCatalog catalog) throws SQLException
+	{
+		return readParsedTables(Collections.singletonList(catalog)).get(0);
+	}
+
+	List<List<CreateTableParser.Result>> readParsedTables(List<SchemaCatalog> catalogs) throws SQLException
+	{
+		// read on the main connection before the batches run on the others
+		final Collations defaults = getCollations();
+		List<String> queries = createStatementQueries(catalogs, SchemaCatalog::getTables, "TABLE");
+		List<CreateTableParser.Result> results = executeBatched(queries, (index, result) ->
+		{
+			result.next();
+
+			return CreateTableParser.parse(result.getString(1), result.getString(2), defaults);
+		});
+
+		List<List<CreateTableParser.Result>> output = new ArrayList<>();
+		int index = 0;
+		for (SchemaCatalog catalog : catalogs)
+		{
+			output.add(results.subList(index, index + catalog.getTables().size()));
+			index += catalog.getTables().size();
+		}
+		return output;
+	}
+
+	List<String> readCreateTableStatements(SchemaCatalog catalog) throws SQLException
+	{
+		// only fetched in catalog order, the caller parses them while the next tables are read
+		return executeBatched(createStatementQueries(Collections.singletonList(catalog), SchemaCatalog::getTables,
+			"TABLE"), (index, result) ->
+		{
+			result.next();
+
+			return result.getString(2);
+		});
+	}
+
+	NamedObjectList<ViewInfo> readViews(SchemaCatalog catalog) throws SQLException
+	{
+		return readViews(Collections.singletonList(catalog)).get(0);
+	}
+
+	List<NamedObjectList<ViewInfo>> readViews(List<SchemaCatalog> catalogs) throws SQLException
+	{
+		return readCreateStatements(catalogs, SchemaCatalog::getViews, "VIEW", (result) ->
+			new ViewInfo(result.getString(1), result.getString(2)));
+	}
+
+	private <T extends NamedObject> List<NamedObjectList<T>> readCreateStatements(List<SchemaCatalog> catalogs,
+		Function<SchemaCatalog, NamedObjectList<SchemaCatalog.Entry>> entries, String type,
+		CreateStatementReader<T> reader) throws SQLException
+	{
+		// the statements of all schemas share the batches, the results are split again in catalog order
+		List<T> results = executeBatched(createStatementQueries(catalogs, entries, type), (index, result) ->
+		{
+			result.next();
+
+			return reader.read(result);
+		});
+
+		List<NamedObjectList<T>> output = new ArrayList<>();
+		int index = 0;
+		for (SchemaCatalog catalog : catalogs)
+		{
+			NamedObjectList<T> objects = new NamedObjectList<>();
+			int count = entries.apply(catalog).size();
+			results.subList(index, index + count).forEach(objects::add);
+			output.add(objects);
+			index += count;
+		}
+		return output;
+	}
+
+	private List<String> createStatementQueries(List<SchemaCatalog> catalogs,
+		Function<SchemaCatalog, NamedObjectList<SchemaCatalog.Entry>> entries, String type)
+	{
+		List<String> queries = new ArrayList<>();
+		for (SchemaCatalog catalog : catalogs)
+		{
+			for (SchemaCatalog.Entry entry : entries.apply(catalog))
+			{
+				queries.add("SHOW CREATE " + type + " " + quoteIdentifier(catalog.getDatabaseName()) + "." +
+					quoteIdentifier(entry.getName()));
+			}
+		}
+		return queries;
+	}
+
+	HashMap<String, NamedObjectList<FieldInfo>> readAllFields(String databaseName) throws SQLException
+	{
+		return readAllFields(Collections.singletonList(databaseName)).get(databaseName);
+	}
+
+	Map<String, HashMap<String, NamedObjectList<FieldInfo>>> readAllFields(Collection<String> databaseNames)
+		throws SQLException
+	{
+		Map<String, HashMap<String, NamedObjectList<FieldInfo>>> schemaFields = createSchemaMap(databaseNames);
+		try (ResultSet result = executeFilteredQuery(SQL_ALL_FIELDS, databaseNames, "TABLE_NAME",
+			SchemaCatalog.ObjectType.TABLE))
+		{
+			String databaseName = null;
+			String tableName = null;
+			NamedObjectList<FieldInfo> fields = null;
+			String lastFieldName = null;
+			while (result.next())
+			{
+				final String rowDatabaseName = result.getString("TABLE_SCHEMA");
+				final String rowTableName = result.getString("TABLE_NAME");
+				if (!rowTableName.equals(tableName) || !rowDatabaseName.equals(databaseName))
+				{
+					databaseName = rowDatabaseName;
+					tableName = rowTableName;
+					// rows of tables the SQL filter could not exclude are skipped without being kept
+					fields = filter.accepts(SchemaCatalog.ObjectType.TABLE, tableName) ? new NamedObjectList<>() : null;
+					if (fields != null)
+						schemaFields.get(databaseName).put(tableName.toLowerCase(), fields);
+					lastFieldName = null;
+				}
+				if (fields == null)
+					continue;
+
+				final FieldInfo fieldInfo = new FieldInfo(tableName, result, lastFieldName);
+				fields.add(fieldInfo);
+				lastFieldName = fieldInfo.getName();
+			}
+		}
+		return schemaFields;
+	}
+
+	HashMap<String, HashMap<String, KeyInfo>> readAllKeys(String databaseName) throws SQLException
+	{
+		return readAllKeys(Collections.singletonList(databaseName)).get(databaseName);
+	}
+
+	Map<String, HashMap<String, HashMap<String, KeyInfo>>> readAllKeys(Collection<String> databaseNames)
+		throws SQLException
+	{
+		Map<String, HashMap<String, HashMap<String, KeyInfo>>> schemaKeys = createSchemaMap(databaseNames);
+		try (ResultSet result = executeFilteredQuery(SQL_ALL_KEYS, databaseNames, "TABLE_NAME",
+			SchemaCatalog.ObjectType.TABLE))
+		{
+			String databaseName = null;
+			String tableName = null;
+			HashMap<String, KeyInfo> keys = null;
+			while (result.next())
+			{
+				final String rowDatabaseName = result.getString("TABLE_SCHEMA");
+				final String rowTableName = result.getString("Table");
+				if (!rowTableName.equals(tableName) || !rowDatabaseName.equals(databaseName))
+				{
+					databaseName = rowDatabaseName;
+					tableName = rowTableName;
+					keys = filter.accepts(SchemaCatalog.ObjectType.TABLE, tableName) ? new HashMap<>() : null;
+					if (keys != null)
+						schemaKeys.get(databaseName).put(tableName.toLowerCase(), keys);
+				}
+				if (keys == null)
+					continue;
+
+				addKeyRow(keys, result);
+			}
+		}
+		return schemaKeys;
+	}
 
-	public DBOReader(Connection connection)
+	private static <T> Map<String, HashMap<String, T>> createSchemaMap(Collection<String> databaseNames)
 	{
-		this.connection = connection;
+		// schema names are case insensitive on the usual server setups, so the rows are matched the same way
+		Map<String, HashMap<String, T>> output = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		for (String databaseName : databaseNames)
+		{
+			output.put(databaseName, new HashMap<>());
+		}
+		return output;
 	}
 
-	NamedObjectList<TableInfo> readTables(String databaseName) throws SQLException
+	private void addKeyRow(HashMap<String, KeyInfo> keys, ResultSet result) throws SQLException
 	{
-		NamedObjectList<TableInfo> tables = new NamedObjectList<>();
-		try (Statement stmt = connection.createStatement())
+		final String keyName = result.getString("Key_name").toLowerCase();
+		KeyInfo keyInfo = keys.get(keyName);
+		if (keyInfo == null)
+		{
+			keyInfo = new KeyInfo(result);
+			keys.put(keyName, keyInfo);
+		}
+		keyInfo.addField(result);
+	}
+
+	NamedObjectList<ProcedureInfo> readProcedures(SchemaCatalog catalog) throws SQLException
+	{
+		NamedObjectList<ProcedureInfo> procedures = new NamedObjectList<>();
+		readProcedures(catalog.getDatabaseName(), catalog.getRoutines(), procedures);
+		return procedures;
+	}
+
+	private void readProcedures(String databaseName, Iterable<SchemaCatalog.Entry> routines,
+		NamedObjectList<ProcedureInfo> procedures) throws SQLException
+	{
+		List<SchemaCatalog.Entry> entries = new ArrayList<>();
+		List<String> queries = new ArrayList<>();
+		for (SchemaCatalog.Entry entry : routines)
+		{
+			entries.add(entry);
+			queries.add("SHOW CREATE " + entry.getType() + " " + quoteIdentifier(databaseName) + "." +
+				quoteIdentifier(entry.getName()));
+		}
+		List<ProcedureInfo> results = executeBatched(queries, (index, result) ->
+		{
+			SchemaCatalog.Entry entry = entries.get(index);
+			result.next();
+			String query = result.getString(3);
+			return new ProcedureInfo(entry.getName(), entry.getType().toString(), query);
+		});
+		results.forEach(procedures::add);
+	}
+
+	NamedObjectList<ProcedureInfo> readAllProcedures(SchemaCatalog catalog) throws SQLException
+	{
+		return readAllProcedures(Collections.singletonList(catalog)).get(0);
+	}
+
+	List<NamedObjectList<ProcedureInfo>> readAllProcedures(List<SchemaCatalog> catalogs) throws SQLException
+	{
+		Map<String, SchemaCatalog> catalogsByName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		Map<String, NamedObjectList<ProcedureInfo>> schemaProcedures = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		Map<String, List<SchemaCatalog.Entry>> hiddenRoutines = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		for (SchemaCatalog catalog : catalogs)
+		{
+			catalogsByName.put(catalog.getDatabaseName(), catalog);
+			schemaProcedures.put(catalog.getDatabaseName(), new NamedObjectList<>());
+		}
+
+		HashMap<String, String> parameterLists = readParameterLists(catalogsByName.keySet());
+		try (ResultSet result = executeFilteredQuery(SQL_ROUTINE_DEFINITIONS, catalogsByName.keySet(), "ROUTINE_NAME",
+			SchemaCatalog.ObjectType.FUNCTION, SchemaCatalog.ObjectType.PROCEDURE))
 		{
-			ResultSet result = stmt.executeQuery("SHOW FULL TABLES FROM `" + databaseName + "`");
 			while (result.next())
 			{
-				if (!result.getString(2).equals("BASE TABLE"))
+				final String databaseName = result.getString("ROUTINE_SCHEMA");
+				final String name = result.getString("ROUTINE_NAME");
+				final SchemaCatalog.Entry entry = catalogsByName.get(databaseName).getRoutines().get(name);
+				if (entry == null)
 					continue;
 
-				try (Statement stmt2 = connection.createStatement())
+				// the definition is only visible to the definer or with enough privileges
+				if (result.getString("ROUTINE_DEFINITION") == null)
 				{
-					ResultSet result2 = stmt2.executeQuery(
-						"SHOW CREATE TABLE `" + databaseName + "`.`" + result.getString(1) + "`");
-					result2.next();
+					hiddenRoutines.computeIfAbsent(databaseName, (key) -> new ArrayList<>()).add(entry);
+					continue;
+				}
+
+				final String type = result.getString("ROUTINE_TYPE");
+				final String parameters = parameterLists.get(getRoutineKey(databaseName, type, name));
+				schemaProcedures.get(databaseName).add(new ProcedureInfo(name, type,
+					buildRoutineCreateStatement(result, parameters != null ? parameters : "")));
+			}
+		}
 
-					String name = result2.getString(1);
-					String dde = result2.getString(2);
+		for (Map.Entry<String, List<SchemaCatalog.Entry>> hidden : hiddenRoutines.entrySet())
+		{
+			readProcedures(catalogsByName.get(hidden.getKey()).getDatabaseName(), hidden.getValue(),
+				schemaProcedures.get(hidden.getKey()));
+		}
 
-					tables.add(parseTableInfo(name, dde));
-				}
+		List<NamedObjectList<ProcedureInfo>> output = new ArrayList<>();
+		for (SchemaCatalog catalog : catalogs)
+		{
+			output.add(schemaProcedures.get(catalog.getDatabaseName()));
+		}
+		return output;
+	}
+
+	NamedObjectList<TriggerInfo> readTriggers(String databaseName) throws SQLException
+	{
+		return readAllTriggers(Collections.singletonList(databaseName)).get(databaseName);
+	}
+
+	Map<String, NamedObjectList<TriggerInfo>> readAllTriggers(Collection<String> databaseNames) throws SQLException
+	{
+		// one query for all triggers of all schemas, SHOW TRIGGERS would be one round trip per table
+		Map<String, NamedObjectList<TriggerInfo>> output = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		for (String databaseName : databaseNames)
+		{
+			output.put(databaseName, new NamedObjectList<>());
+		}
+
+		// a trigger belongs to its table, so it is left out together with the table
+		try (ResultSet result = executeFilteredQuery(SQL_TRIGGERS, databaseNames, "EVENT_OBJECT_TABLE",
+			SchemaCatalog.ObjectType.TABLE))
+		{
+			while (result.next())
+			{
+				final String tableName = result.getString("EVENT_OBJECT_TABLE");
+				if (!filter.accepts(SchemaCatalog.ObjectType.TABLE, tableName))
+					continue;
+
+				output.get(result.getString("TRIGGER_SCHEMA")).add(new TriggerInfo(result.getString("TRIGGER_NAME"),
+					tableName, result.getString("ACTION_TIMING"), result.getString("EVENT_MANIPULATION"),
+					result.getString("ACTION_STATEMENT")));
 			}
 		}
-		return tables;
+		return output;
 	}
 
-	NamedObjectList<ViewInfo> readViews(String databaseName) throws SQLException
+	NamedObjectList<ForeignKeyInfo> readForeignKeys(String databaseName) throws SQLException
 	{
-		NamedObjectList<ViewInfo> views = new NamedObjectList<>();
-		try (Statement stmt = connection.createStatement())
+		return readAllForeignKeys(Collections.singletonList(databaseName)).get(databaseName);
+	}
+
+	Map<String, NamedObjectList<ForeignKeyInfo>> readAllForeignKeys(Collection<String> databaseNames)
+		throws SQLException
+	{
+		// SHOW KEYS has no referential actions, so the constraints are read on their own for all schemas at once
+		Map<String, NamedObjectList<ForeignKeyInfo>> output = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		for (String databaseName : databaseNames)
+		{
+			output.put(databaseName, new NamedObjectList<>());
+		}
+
+		try (ResultSet result = executeFilteredQuery(SQL_FOREIGN_KEYS, databaseNames, "rc.TABLE_NAME",
+			SchemaCatalog.ObjectType.TABLE))
 		{
-			ResultSet result = stmt.executeQuery("SHOW FULL TABLES FROM `" + databaseName + "`");
+			ForeignKeyInfo foreignKeyInfo = null;
+			String lastKey = null;
 			while (result.next())
 			{
-				if (!result.getString(2).equals("VIEW"))
+				final String databaseName = result.getString("CONSTRAINT_SCHEMA");
+				final String tableName = result.getString("TABLE_NAME");
+				final String name = result.getString("CONSTRAINT_NAME");
+				if (!filter.accepts(SchemaCatalog.ObjectType.TABLE, tableName))
 					continue;
 
-				try (Statement stmt2 = connection.createStatement())
+				// the rows of one constraint follow each other
+				final String key = databaseName + "." + tableName + "." + name;
+				if (!key.equals(lastKey))
 				{
-					ResultSet result2 = stmt2.executeQuery(
-						"SHOW CREATE VIEW `" + databaseName + "`.`" + result.getString(1) + "`");
-					result2.next();
+					lastKey = key;
+					String referencedSchema = result.getString("REFERENCED_TABLE_SCHEMA");
+					foreignKeyInfo = new ForeignKeyInfo(tableName, name,
+						databaseName.equalsIgnoreCase(referencedSchema) ? null : referencedSchema,
+						result.getString("REFERENCED_TABLE_NAME"), result.getString("UPDATE_RULE"),
+						result.getString("DELETE_RULE"));
+					output.get(databaseName).add(foreignKeyInfo);
+				}
+				foreignKeyInfo.addColumn(result.getString("COLUMN_NAME"), result.getString("REFERENCED_COLUMN_NAME"));
+			}
+		}
+		return output;
+	}
+
+	NamedObjectList<PartitionInfo> readPartitions(String databaseName) throws SQLException
+	{
+		return readAllPartitions(Collections.singletonList(databaseName)).get(databaseName);
+	}
+
+	Map<String, NamedObjectList<PartitionInfo>> readAllPartitions(Collection<String> databaseNames)
+		throws SQLException
+	{
+		// the table options of SHOW TABLE STATUS only tell that a table is partitioned, not how
+		Map<String, NamedObjectList<PartitionInfo>> output = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		for (String databaseName : databaseNames)
+		{
+			output.put(databaseName, new NamedObjectList<>());
+		}
+
+		// the subpartition count is only known after all rows of the first partition
+		Map<String, List<String[]>> tableRows = new LinkedHashMap<>();
+		try (ResultSet result = executeFilteredQuery(SQL_PARTITIONS, databaseNames, "TABLE_NAME",
+			SchemaCatalog.ObjectType.TABLE))
+		{
+			while (result.next())
+			{
+				final String databaseName = result.getString("TABLE_SCHEMA");
+				final String tableName = result.getString("TABLE_NAME");
+				if (!filter.accepts(SchemaCatalog.ObjectType.TABLE, tableName))
+					continue;
+
+				tableRows.computeIfAbsent(databaseName + "." + tableName, (key) -> new ArrayList<>()).add(
+					new String[] {databaseName, tableName, result.getString("PARTITION_NAME"),
+						result.getString("PARTITION_METHOD"), result.getString("PARTITION_EXPRESSION"),
+						result.getString("SUBPARTITION_METHOD"), result.getString("SUBPARTITION_EXPRESSION"),
+						result.getString("PARTITION_DESCRIPTION")});
+			}
+		}
 
-					String name = result2.getString(1);
-					String dde = result2.getString(2);
+		for (List<String[]> rows : tableRows.values())
+		{
+			String[] first = rows.get(0);
+			int subpartitions = 0;
+			while (subpartitions < rows.size() && rows.get(subpartitions)[2].equals(first[2]))
+			{
+				subpartitions++;
+			}
 
-					views.add(new ViewInfo(name, dde));
+			PartitionInfo partitionInfo = new PartitionInfo(first[1], first[3], first[4], first[5], first[6],
+				subpartitions);
+			String lastPartition = null;
+			for (String[] row : rows)
+			{
+				if (!row[2].equals(lastPartition))
+				{
+					lastPartition = row[2];
+					partitionInfo.addPartition(row[2], row[7]);
 				}
 			}
+			output.get(first[0]).add(partitionInfo);
 		}
-		return views;
+		return output;
 	}
 
-	NamedObjectList<FieldInfo> readFields(String databaseName, String tableName) throws SQLException
+	private HashMap<String, String> readParameterLists(Collection<String> databaseNames) throws SQLException
 	{
-		NamedObjectList<FieldInfo> fields = new NamedObjectList<>();
-		try (Statement stmt = connection.createStatement())
+		HashMap<String, StringBuilder> parameterLists = new HashMap<>();
+		try (ResultSet result = executeFilteredQuery(SQL_PARAMETERS, databaseNames, "SPECIFIC_NAME",
+			SchemaCatalog.ObjectType.FUNCTION, SchemaCatalog.ObjectType.PROCEDURE))
 		{
-			ResultSet result = stmt.executeQuery("SELECT * FROM information_schema.columns WHERE  table_name = '" +
-				tableName + "' AND table_schema = '" + databaseName + "' ORDER BY ORDINAL_POSITION");
-			String lastFieldName = null;
 			while (result.next())
 			{
-				final FieldInfo fieldInfo = new FieldInfo(tableName, result, lastFieldName);
-				fields.add(fieldInfo);
-				lastFieldName = fieldInfo.getName();
+				final String key = getRoutineKey(result.getString("SPECIFIC_SCHEMA"), result.getString("ROUTINE_TYPE"),
+					result.getString("SPECIFIC_NAME"));
+				StringBuilder parameters = parameterLists.get(key);
+				if (parameters == null)
+				{
+					parameters = new StringBuilder();
+					parameterLists.put(key, parameters);
+				}
+				else
+				{
+					parameters.append(", ");
+				}
+
+				// functions have no parameter mode
+				if (result.getString("PARAMETER_MODE") != null)
+				{
+					parameters.append(result.getString("PARAMETER_MODE")).append(" ");
+				}
+				parameters.append("`").append(result.getString("PARAMETER_NAME")).append("` ")
+					.append(result.getString("DTD_IDENTIFIER"));
 			}
 		}
-		return fields;
+
+		HashMap<String, String> output = new HashMap<>();
+		parameterLists.forEach((key, parameters) -> output.put(key, parameters.toString()));
+		return output;
+	}
+
+	private static String getRoutineKey(String databaseName, String type, String name)
+	{
+		return databaseName.toLowerCase() + "." + type + "." + name.toLowerCase();
+	}
+
+	private String buildRoutineCreateStatement(ResultSet result, String parameters) throws SQLException
+	{
+		// mimics the layout of SHOW CREATE FUNCTION / PROCEDURE
+		StringBuilder query = new StringBuilder();
+		query.append("CREATE ")
+			.append(result.getString("ROUTINE_TYPE"))
+			.append(" `")
+			.append(result.getString("ROUTINE_NAME"))
+			.append("`(")
+			.append(parameters)
+			.append(")");
+
+		if (result.getString("DTD_IDENTIFIER") != null)
+		{
+			query.append(" RETURNS ").append(result.getString("DTD_IDENTIFIER"));
+		}
+		query.append("\n");
+
+		if ("YES".equals(result.getString("IS_DETERMINISTIC")))
+		{
+			query.append("    DETERMINISTIC\n");
+		}
+		if (!"CONTAINS SQL".equals(result.getString("SQL_DATA_ACCESS")))
+		{
+			query.append("    ").append(result.getString("SQL_DATA_ACCESS")).append("\n");
+		}
+		if ("INVOKER".equals(result.getString("SECURITY_TYPE")))
+		{
+			query.append("    SQL SECURITY INVOKER\n");
+		}
+		String comment = result.getString("ROUTINE_COMMENT");
+		if (comment != null && !comment.isEmpty())
+		{
+			query.append("    COMMENT '").append(comment.replace("'", "''")).append("'\n");
+		}
+
+		query.append(result.getString("ROUTINE_DEFINITION"));
+
+		return query.toString();
 	}
 
-	HashMap<String, KeyInfo> readKeys(String databaseName, String tableName) throws SQLException
+	private <T> List<T> executeBatched(List<String> queries, BatchResultHandler<T> handler) throws SQLException
 	{
-		HashMap<String, KeyInfo> keys = new HashMap<>();
-		try (Statement stmt = connection.createStatement())
+		if (queries.isEmpty())
+			return new ArrayList<>();
+
+		// keep the multi statement packet well below max_allowed_packet
+		final int maxBatchBytes = getMaxPacketSize() / 2;
+
+		List<Batch> batches = new ArrayList<>();
+		int index = 0;
+		while (index < queries.size())
 		{
-			ResultSet result = stmt.executeQuery("SHOW KEYS FROM `" + databaseName + "`.`" + tableName + "`");
-			while (result.next())
+			int batchBytes = 0;
+			int count = 0;
+			while (index + count < queries.size() && count < batchSize)
+			{
+				int queryBytes = queries.get(index + count).getBytes(StandardCharsets.UTF_8).length + 1;
+				if (count > 0 && batchBytes + queryBytes > maxBatchBytes)
+					break;
+
+				batchBytes += queryBytes;
+				count++;
+			}
+			batches.add(new Batch(index, count));
+			index += count;
+		}
+
+		final List<T> results = new ArrayList<>(Collections.nCopies(queries.size(), null));
+
+		if (connections.size() == 1 || batches.size() == 1)
+		{
+			for (Batch batch : batches)
+			{
+				executeBatch(connection, queries, batch, handler, results);
+			}
+			return results;
+		}
+
+		// idle workers steal the next pending batch and run it on a free connection of the pool,
+		// the results are stored by query index so the order does not depend on the scheduling
+		final BlockingQueue<Connection> idleConnections = new ArrayBlockingQueue<>(connections.size(), false,
+			connections);
+		ExecutorService executor = getWorkers();
+		List<Future<Void>> futures = new ArrayList<>();
+		try
+		{
+			for (Batch batch : batches)
+			{
+				futures.add(executor.submit(() ->
+				{
+					Connection batchConnection = idleConnections.take();
+					try
+					{
+						executeBatch(batchConnection, queries, batch, handler, results);
+					}
+					finally
+					{
+						idleConnections.put(batchConnection);
+					}
+					return null;
+				}));
+			}
+
+			for (Future<Void> future : futures)
+			{
+				try
+				{
+					future.get();
+				}
+				catch (ExecutionException e)
+				{
+					if (e.getCause() instanceof SQLException)
+						throw (SQLException)e.getCause();
+					throw new SQLException("Could not read metadata", e.getCause());
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					throw new SQLException("Interrupted while reading metadata", e);
+				}
+			}
+		}
+		finally
+		{
+			// the workers are shared, batches still queued after a failure must not run anymore
+			for (Future<Void> future : futures)
 			{
-				keys.put(result.getString("Key_name").toLowerCase(), new KeyInfo(result));
+				future.cancel(true);
 			}
 		}
-		return keys;
+
+		return results;
+	}
+
+	private synchronized ExecutorService getWorkers()
+	{
+		if (workers == null)
+		{
+			// a reader without the workers of its connections pool creates them once for its lifetime
+			workers = Executors.newWorkStealingPool(connections.size());
+			ownWorkers = true;
+		}
+		return workers;
 	}
 
-	NamedObjectList<ProcedureInfo> readProcedures(String databaseName) throws SQLException
+	private <T> void executeBatch(Connection batchConnection, List<String> queries, Batch batch,
+		BatchResultHandler<T> handler, List<T> results) throws SQLException
 	{
-		NamedObjectList<ProcedureInfo> procedures = new NamedObjectList<>();
-		try (Statement stmt = connection.createStatement())
+		StringBuilder sql = new StringBuilder();
+		for (int i = 0; i < batch.count; ++i)
 		{
-			ResultSet result = stmt.executeQuery(
-				"SHOW FUNCTION STATUS WHERE Db = '" + databaseName + "'");
-			while (result.next())
+			sql.append(queries.get(batch.start + i)).append(';');
+		}
+
+		Statement stmt = createStatement(batchConnection);
+		try
+		{
+			boolean hasResult = execute(stmt, sql.toString(), batch.count);
+			for (int i = 0; i < batch.count; ++i)
 			{
-				try (Statement stmt2 = connection.createStatement())
+				if (!hasResult)
+					throw new SQLException("Missing result for query `" + queries.get(batch.start + i) + "`");
+
+				try (ResultSet result = stmt.getResultSet())
 				{
-					ResultSet result2 = stmt2.executeQuery("SHOW CREATE FUNCTION `" + databaseName + "`.`" +
-						result.getString("Name") + "`");
-					result2.next();
-					String query = result2.getString(3);
-					procedures.add(new ProcedureInfo(result.getString("Name"), result.getString("Type"), query));
+					results.set(batch.start + i, handler.handle(batch.start + i, result));
 				}
+				hasResult = stmt.getMoreResults();
 			}
-			result = stmt.executeQuery(
-				"SHOW PROCEDURE STATUS WHERE Db = '" + databaseName + "'");
-			while (result.next())
+		}
+		finally
+		{
+			closeStatement(stmt);
+		}
+	}
+
+	private ResultSet executeQuery(String sql, String... parameters) throws SQLException
+	{
+		// statements are prepared once per connection and reused for the whole compare
+		checkCancelled();
+
+		PreparedStatement stmt = statements.get(sql);
+		if (stmt == null)
+		{
+			// rows are handed out as they arrive instead of buffering the whole result in the driver,
+			// the connection cannot run other queries until the result is fully read
+			stmt = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			stmt.setFetchSize(Integer.MIN_VALUE);
+			stmt.setQueryTimeout(queryTimeout);
+			statements.put(sql, stmt);
+			activeStatements.add(stmt);
+		}
+
+		for (int i = 0; i < parameters.length; ++i)
+		{
+			stmt.setString(i + 1, parameters[i]);
+		}
+
+		acquireThrottle(1);
+		final long start = System.nanoTime();
+		final ResultSet result;
+		try
+		{
+			result = stmt.executeQuery();
+		}
+		catch (SQLException | RuntimeException e)
+		{
+			releaseThrottle(1, start);
+			throw e;
+		}
+
+		// the rows are streamed, so the query keeps the server busy until its result is closed
+		return throttle != null ? releasingOnClose(result, () -> releaseThrottle(1, start)) : result;
+	}
+
+	private static ResultSet releasingOnClose(ResultSet result, Runnable release)
+	{
+		AtomicBoolean released = new AtomicBoolean(false);
+		return (ResultSet)Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+			(proxy, method, args) ->
 			{
-				try (Statement stmt2 = connection.createStatement())
+				try
+				{
+					return method.invoke(result, args);
+				}
+				catch (InvocationTargetException e)
+				{
+					throw e.getCause();
+				}
+				finally
 				{
-					ResultSet result2 = stmt2.executeQuery("SHOW CREATE PROCEDURE `" + databaseName + "`.`" +
-						result.getString("Name") + "`");
-					result2.next();
-					String query = result2.getString(3);
-					procedures.add(new ProcedureInfo(result.getString("Name"), result.getString("Type"), query));
+					if (method.getName().equals("close") && released.compareAndSet(false, true))
+						release.run();
 				}
+			});
+	}
+
+	private ResultSet executeFilteredQuery(String sql, Collection<String> databaseNames, String nameColumn,
+		SchemaCatalog.ObjectType... types) throws SQLException
+	{
+		ObjectFilter.SqlCondition condition = filter.toSql(nameColumn, types);
+
+		List<String> parameters = new ArrayList<>(databaseNames);
+		parameters.addAll(condition.getParameters());
+		String schemaList = String.join(", ", Collections.nCopies(databaseNames.size(), "?"));
+		return executeQuery(String.format(sql, schemaList, condition.getClause()), parameters.toArray(new String[0]));
+	}
+
+	private boolean execute(Statement stmt, String sql, int queries) throws SQLException
+	{
+		// held until the statement is closed, the results of a packet are streamed while they are walked
+		acquireThrottle(queries);
+		if (throttle != null)
+			heldPermits.put(stmt, new HeldPermit(queries, System.nanoTime()));
+		try
+		{
+			return stmt.execute(sql);
+		}
+		catch (SQLException | RuntimeException e)
+		{
+			releasePermit(stmt);
+			throw e;
+		}
+	}
+
+	private void releasePermit(Statement stmt)
+	{
+		HeldPermit permit = heldPermits.remove(stmt);
+		if (permit != null)
+			releaseThrottle(permit.queries, permit.start);
+	}
+
+	private void acquireThrottle(int queries) throws SQLException
+	{
+		if (throttle != null)
+		{
+			throttle.acquire(queries);
+			// the cancel may have happened while waiting for the throttle
+			if (cancelled)
+			{
+				throttle.abort();
+				checkCancelled();
 			}
 		}
-		return procedures;
 	}
 
-	private TableInfo parseTableInfo(String name, String info)
+	private void releaseThrottle(int queries, long start)
+	{
+		if (throttle != null)
+			throttle.release(queries, System.nanoTime() - start);
+	}
+
+	private Statement createStatement(Connection statementConnection) throws SQLException
+	{
+		checkCancelled();
+
+		Statement stmt = statementConnection.createStatement();
+		stmt.setQueryTimeout(queryTimeout);
+		activeStatements.add(stmt);
+
+		// a cancel between the check and the registration would not have seen this statement
+		if (cancelled)
+		{
+			closeStatement(stmt);
+			checkCancelled();
+		}
+		return stmt;
+	}
+
+	private void closeStatement(Statement stmt) throws SQLException
+	{
+		activeStatements.remove(stmt);
+		try
+		{
+			stmt.close();
+		}
+		finally
+		{
+			releasePermit(stmt);
+		}
+	}
+
+	private void checkCancelled() throws SQLException
+	{
+		if (cancelled)
+			throw new SQLException("Query execution was interrupted", "70100");
+	}
+
+	static String quoteString(String value)
+	{
+		return "'" + value.replace("\\", "\\\\").replace("'", "''") + "'";
+	}
+
+	static String quoteIdentifier(String identifier)
 	{
-		// ENGINE=InnoDB DEFAULT CHARSET=latin1 COLLATE=latin1_general_ci
+		return "`" + identifier.replace("`", "``") + "`";
+	}
 
-		info = Pattern.compile("AUTO_INCREMENT=\\d+", Pattern.CASE_INSENSITIVE).matcher(info).replaceAll("");
+	@Override
+	public void close() throws SQLException
+	{
+		if (cache != null)
+		{
+			for (MetadataCache.SchemaEntry entry : cacheEntries.values())
+			{
+				cache.save(entry);
+			}
+		}
 
-		int pos = info.lastIndexOf(')');
+		for (PreparedStatement stmt : statements.values())
+		{
+			activeStatements.remove(stmt);
+			stmt.close();
+		}
+		statements.clear();
 
-		String engine = "InnoDB";
-		Matcher em = Pattern.compile("ENGINE=([^\\s]+)", Pattern.CASE_INSENSITIVE).matcher(info);
-		if (em.find(pos))
+		if (ownWorkers)
 		{
-			engine = em.group(1);
+			workers.shutdownNow();
+			workers = null;
+			ownWorkers = false;
 		}
+	}
 
-		String charset = "utf8mb4";
-		Matcher chm = Pattern.compile("CHARSET=([^\\s]+)", Pattern.CASE_INSENSITIVE).matcher(info);
-		if (chm.find(pos))
+	private int getMaxPacketSize() throws SQLException
+	{
+		if (maxPacketSize == 0)
 		{
-			charset = chm.group(1);
+			Statement stmt = createStatement(connection);
+			try
+			{
+				execute(stmt, "SELECT @@max_allowed_packet", 1);
+				ResultSet result = stmt.getResultSet();
+				result.next();
+				maxPacketSize = result.getInt(1);
+			}
+			finally
+			{
+				closeStatement(stmt);
+			}
 		}
+		return maxPacketSize;
+	}
+
+	private static Long getLong(ResultSet result, String columnLabel) throws SQLException
+	{
+		long value = result.getLong(columnLabel);
+		return result.wasNull() ? null : value;
+	}
+
+
+	private interface BatchResultHandler<T>
+	{
+		T handle(int index, ResultSet result) throws SQLException;
+	}
+
+	private interface CreateStatementReader<T>
+	{
+		T read(ResultSet result) throws SQLException;
+	}
+
+	private static class Batch
+	{
+		final int start;
+		final int count;
 
-		String collation = charset + "_general_ci";
-		Matcher com = Pattern.compile("COLLATE=([^\\s]+)", Pattern.CASE_INSENSITIVE).matcher(info);
-		if (com.find(pos))
+		Batch(int start, int count)
 		{
-			collation = com.group(1);
+			this.start = start;
+			this.count = count;
 		}
+	}
 
-		return new TableInfo(name, info, engine, charset, collation);
+	private static class HeldPermit
+	{
+		final int queries;
+		final long start;
+
+		HeldPermit(int queries, long start)
+		{
+			this.queries = queries;
+			this.start = start;
+		}
 	}
 }
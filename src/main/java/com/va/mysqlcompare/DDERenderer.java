@@ -17,10 +17,14 @@ package com.va.mysqlcompare;
 
 import com.va.mysqlcompare.CompareResult.Diff;
 import com.va.mysqlcompare.CompareResult.FieldDiff;
+import com.va.mysqlcompare.CompareResult.ForeignKeyDiff;
 import com.va.mysqlcompare.CompareResult.KeyDiff;
+import com.va.mysqlcompare.CompareResult.PartitionDiff;
 import com.va.mysqlcompare.CompareResult.ProcedureDiff;
 import com.va.mysqlcompare.CompareResult.TableDiff;
+import com.va.mysqlcompare.CompareResult.TriggerDiff;
 import com.va.mysqlcompare.CompareResult.ViewDiff;
+import java.util.ArrayList;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,9 +50,31 @@ public class DDERenderer
 
 	public void render(OutputWriter writer, boolean reverse)
 	{
+		// a foreign key blocks changes to the columns it uses, so all of them are dropped before
+		// anything else and added again once the columns are in their final shape, the same goes for
+		// partitioning and the unique keys, which must contain the partitioning columns
 		differences.forEach((diff) ->
 		{
-			renderSingle(diff, writer, reverse);
+			if (diff.getType() == Diff.Type.FOREIGN_KEY)
+				renderForeignKeyDiff(writer, (ForeignKeyDiff)diff, reverse, true, false);
+			else if (diff.getType() == Diff.Type.PARTITION)
+				renderPartitionDiff(writer, (PartitionDiff)diff, reverse, true, false);
+		});
+		differences.forEach((diff) ->
+		{
+			if (diff.getType() != Diff.Type.FOREIGN_KEY && diff.getType() != Diff.Type.PARTITION)
+				renderSingle(diff, writer, reverse);
+		});
+		// partitioned InnoDB tables cannot have foreign keys, so these come last
+		differences.forEach((diff) ->
+		{
+			if (diff.getType() == Diff.Type.PARTITION)
+				renderPartitionDiff(writer, (PartitionDiff)diff, reverse, false, true);
+		});
+		differences.forEach((diff) ->
+		{
+			if (diff.getType() == Diff.Type.FOREIGN_KEY)
+				renderForeignKeyDiff(writer, (ForeignKeyDiff)diff, reverse, false, true);
 		});
 	}
 
@@ -76,6 +102,15 @@ public class DDERenderer
 			case PROCEDURE:
 				renderProcedureDiff(writer, (ProcedureDiff)diff, reverse);
 				break;
+			case TRIGGER:
+				renderTriggerDiff(writer, (TriggerDiff)diff, reverse);
+				break;
+			case FOREIGN_KEY:
+				renderForeignKeyDiff(writer, (ForeignKeyDiff)diff, reverse, true, true);
+				break;
+			case PARTITION:
+				renderPartitionDiff(writer, (PartitionDiff)diff, reverse, true, true);
+				break;
 		}
 	}
 
@@ -98,6 +133,12 @@ public class DDERenderer
 					? tableDiff.getTableInfoB().getCreateStatement() + ";"
 					: "DROP TABLE `" + tableDiff.getTableInfoB().getName() + "`;");
 				break;
+			case PENDING:
+				// the columns and keys of the table are still being loaded by a lazy compare
+				writer.println("-- details of table `" + tableDiff.getTableInfoA().getName() + "` not loaded yet");
+				break;
+			default:
+				break;
 		}
 	}
 
@@ -397,6 +438,307 @@ public class DDERenderer
 		}
 	}
 
+	private void renderTriggerDiff(OutputWriter writer, TriggerDiff triggerDiff, boolean reverse)
+	{
+		switch (triggerDiff.getMode())
+		{
+			case LEFT_ONLY:
+				renderTriggerInfo(writer, triggerDiff.getTriggerInfoA(), reverse);
+				break;
+
+			case RIGHT_ONLY:
+				renderTriggerInfo(writer, triggerDiff.getTriggerInfoB(), !reverse);
+				break;
+
+			case DIFFERENT:
+			{
+				// there is no ALTER TRIGGER, the old one is dropped first since both may share the name
+				TriggerInfo triggerInfo
+					= !reverse ? triggerDiff.getTriggerInfoA() : triggerDiff.getTriggerInfoB();
+				renderTriggerInfo(writer, triggerInfo, true);
+				renderTriggerInfo(writer, triggerInfo, false);
+				break;
+			}
+		}
+	}
+
+	private void renderTriggerInfo(OutputWriter writer, TriggerInfo triggerInfo, boolean drop)
+	{
+		if (drop)
+		{
+			// dropping its table has already removed the trigger when the whole table is gone
+			writer.println("DROP TRIGGER IF EXISTS `" + triggerInfo.getName() + "`;");
+		}
+		else
+		{
+			writer.println("DELIMITER $$\n" + triggerInfo.getCreateStatement() + "$$\nDELIMITER ;");
+		}
+	}
+
+	private void renderForeignKeyDiff(OutputWriter writer, ForeignKeyDiff foreignKeyDiff, boolean reverse,
+		boolean drops, boolean adds)
+	{
+		ForeignKeyInfo target = !reverse ? foreignKeyDiff.getForeignKeyInfoA() : foreignKeyDiff.getForeignKeyInfoB();
+		ForeignKeyInfo current = !reverse ? foreignKeyDiff.getForeignKeyInfoB() : foreignKeyDiff.getForeignKeyInfoA();
+
+		switch (foreignKeyDiff.getMode())
+		{
+			case LEFT_ONLY:
+			case RIGHT_ONLY:
+			case DIFFERENT:
+			{
+				if (drops && current != null)
+					writer.println(getDropForeignKeyQuery(current));
+				if (adds && target != null)
+					writer.println(getCreateForeignKeyQuery(target));
+				break;
+			}
+		}
+	}
+
+	private void renderPartitionDiff(OutputWriter writer, PartitionDiff partitionDiff, boolean reverse,
+		boolean drops, boolean adds)
+	{
+		PartitionInfo target = !reverse ? partitionDiff.getPartitionInfoA() : partitionDiff.getPartitionInfoB();
+		PartitionInfo current = !reverse ? partitionDiff.getPartitionInfoB() : partitionDiff.getPartitionInfoA();
+
+		switch (partitionDiff.getMode())
+		{
+			case LEFT_ONLY:
+			case RIGHT_ONLY:
+			case DIFFERENT:
+			{
+				if (target == null)
+				{
+					if (drops)
+						writer.println("ALTER TABLE `" + current.getTableName() + "` REMOVE PARTITIONING;");
+				}
+				else if (adds)
+				{
+					renderPartitionChanges(writer, current, target);
+				}
+				break;
+			}
+		}
+	}
+
+	private void renderPartitionChanges(OutputWriter writer, PartitionInfo current, PartitionInfo target)
+	{
+		final String alterTable = "ALTER TABLE `" + target.getTableName() + "` ";
+
+		if (!target.isSameScheme(current))
+		{
+			writer.println(alterTable + buildPartitionClause(target) + ";");
+			return;
+		}
+
+		if (target.isHashed())
+		{
+			int difference = target.getPartitions().size() - current.getPartitions().size();
+			if (difference > 0)
+				writer.println(alterTable + "ADD PARTITION PARTITIONS " + difference + ";");
+			else if (difference < 0)
+				writer.println(alterTable + "COALESCE PARTITION " + -difference + ";");
+			return;
+		}
+
+		// only the partitions between the unchanged ones at both ends are touched, so the data of all others
+		// stays where it is
+		List<PartitionInfo.Partition> currentPartitions = current.getPartitions();
+		List<PartitionInfo.Partition> targetPartitions = target.getPartitions();
+		int common = Math.min(currentPartitions.size(), targetPartitions.size());
+		int prefix = 0;
+		while (prefix < common && currentPartitions.get(prefix).equals(targetPartitions.get(prefix)))
+		{
+			prefix++;
+		}
+		int suffix = 0;
+		while (suffix < common - prefix && currentPartitions.get(currentPartitions.size() - 1 - suffix)
+			.equals(targetPartitions.get(targetPartitions.size() - 1 - suffix)))
+		{
+			suffix++;
+		}
+		List<PartitionInfo.Partition> removed = new ArrayList<>(
+			currentPartitions.subList(prefix, currentPartitions.size() - suffix));
+		List<PartitionInfo.Partition> added = new ArrayList<>(
+			targetPartitions.subList(prefix, targetPartitions.size() - suffix));
+
+		if (target.isRange() && suffix > 0 && !added.isEmpty() && (removed.isEmpty()
+			|| !isSameDescription(removed.get(removed.size() - 1), added.get(added.size() - 1))))
+		{
+			// a range can only be split or merged within the bounds it already covers, the next
+			// partition provides them
+			removed.add(currentPartitions.get(currentPartitions.size() - suffix));
+			added.add(targetPartitions.get(targetPartitions.size() - suffix));
+		}
+
+		if (added.isEmpty() && removed.isEmpty())
+		{
+			return;
+		}
+		else if (added.isEmpty())
+		{
+			writer.println(alterTable + "DROP PARTITION " + buildPartitionNames(removed) + ";");
+		}
+		else if (removed.isEmpty())
+		{
+			writer.println(alterTable + "ADD PARTITION " + buildPartitionDefs(target, added) + ";");
+		}
+		else if (target.isRange() && suffix == 0
+			&& !isSameDescription(removed.get(removed.size() - 1), added.get(added.size() - 1)))
+		{
+			// the upper bound of the last partition changes, only partitioning again is always accepted
+			writer.println(alterTable + buildPartitionClause(target) + ";");
+		}
+		else
+		{
+			writer.println(alterTable + "REORGANIZE PARTITION " + buildPartitionNames(removed) + " INTO "
+				+ buildPartitionDefs(target, added) + ";");
+		}
+	}
+
+	private boolean isSameDescription(PartitionInfo.Partition partition1, PartitionInfo.Partition partition2)
+	{
+		return new PartitionInfo.Partition("", partition1.getDescription())
+			.equals(new PartitionInfo.Partition("", partition2.getDescription()));
+	}
+
+	private String buildPartitionClause(PartitionInfo partitionInfo)
+	{
+		StringBuilder clause = new StringBuilder();
+		clause.append("PARTITION BY ")
+			.append(partitionInfo.getMethod())
+			.append(" (")
+			.append(partitionInfo.getExpression())
+			.append(")");
+		if (partitionInfo.getSubpartitionMethod() != null)
+		{
+			clause.append(" SUBPARTITION BY ")
+				.append(partitionInfo.getSubpartitionMethod())
+				.append(" (")
+				.append(partitionInfo.getSubpartitionExpression())
+				.append(") SUBPARTITIONS ")
+				.append(partitionInfo.getSubpartitionCount());
+		}
+		if (partitionInfo.isHashed())
+		{
+			clause.append(" PARTITIONS ")
+				.append(partitionInfo.getPartitions().size());
+		}
+		else
+		{
+			clause.append(" ")
+				.append(buildPartitionDefs(partitionInfo, partitionInfo.getPartitions()));
+		}
+		return clause.toString();
+	}
+
+	private String buildPartitionDefs(PartitionInfo partitionInfo, List<PartitionInfo.Partition> partitions)
+	{
+		StringBuilder defs = new StringBuilder("(");
+		for (int i = 0; i < partitions.size(); i++)
+		{
+			PartitionInfo.Partition partition = partitions.get(i);
+			if (i > 0)
+			{
+				defs.append(", ");
+			}
+			defs.append("PARTITION `")
+				.append(partition.getName())
+				.append("`");
+			if (!partitionInfo.isRange())
+			{
+				defs.append(" VALUES IN (")
+					.append(partition.getDescription())
+					.append(")");
+			}
+			else if (partition.getDescription().equalsIgnoreCase("MAXVALUE") && !partitionInfo.isColumns())
+			{
+				defs.append(" VALUES LESS THAN MAXVALUE");
+			}
+			else
+			{
+				defs.append(" VALUES LESS THAN (")
+					.append(partition.getDescription())
+					.append(")");
+			}
+		}
+		defs.append(")");
+		return defs.toString();
+	}
+
+	private String buildPartitionNames(List<PartitionInfo.Partition> partitions)
+	{
+		StringBuilder names = new StringBuilder();
+		for (int i = 0; i < partitions.size(); i++)
+		{
+			if (i > 0)
+			{
+				names.append(", ");
+			}
+			names.append("`")
+				.append(partitions.get(i).getName())
+				.append("`");
+		}
+		return names.toString();
+	}
+
+	private String getCreateForeignKeyQuery(ForeignKeyInfo foreignKeyInfo)
+	{
+		StringBuilder query = new StringBuilder();
+		query.append("ALTER TABLE `")
+			.append(foreignKeyInfo.getTableName())
+			.append("` ADD CONSTRAINT `")
+			.append(foreignKeyInfo.getName())
+			.append("` FOREIGN KEY ")
+			.append(buildColumnList(foreignKeyInfo.getColumns()))
+			.append(" REFERENCES ");
+		if (foreignKeyInfo.getReferencedSchema() != null)
+		{
+			query.append("`")
+				.append(foreignKeyInfo.getReferencedSchema())
+				.append("`.");
+		}
+		query.append("`")
+			.append(foreignKeyInfo.getReferencedTable())
+			.append("` ")
+			.append(buildColumnList(foreignKeyInfo.getReferencedColumns()))
+			.append(" ON DELETE ")
+			.append(foreignKeyInfo.getDeleteRule())
+			.append(" ON UPDATE ")
+			.append(foreignKeyInfo.getUpdateRule())
+			.append(";");
+		return query.toString();
+	}
+
+	private String getDropForeignKeyQuery(ForeignKeyInfo foreignKeyInfo)
+	{
+		StringBuilder query = new StringBuilder();
+		query.append("ALTER TABLE `")
+			.append(foreignKeyInfo.getTableName())
+			.append("` DROP FOREIGN KEY `")
+			.append(foreignKeyInfo.getName())
+			.append("`;");
+		return query.toString();
+	}
+
+	private String buildColumnList(List<String> columns)
+	{
+		StringBuilder columnList = new StringBuilder("(");
+		for (int i = 0; i < columns.size(); i++)
+		{
+			if (i > 0)
+			{
+				columnList.append(", ");
+			}
+			columnList.append("`")
+				.append(columns.get(i))
+				.append("`");
+		}
+		columnList.append(")");
+		return columnList.toString();
+	}
+
 	private String getCreateKeyQuery(KeyInfo keyInfo)
 	{
 		StringBuilder query = new StringBuilder();
@@ -16,11 +16,16 @@
 package com.va.mysqlcompare;
 
 import com.va.common.UserInteraction;
+import java.io.File;
+import java.io.IOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import javax.swing.DefaultListModel;
+import javax.swing.JFileChooser;
 import javax.swing.JList;
+import javax.swing.JMenuItem;
+import javax.swing.JPopupMenu;
 import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 import org.slf4j.Logger;
@@ -43,6 +48,7 @@ public class DatabaseSelectorTab extends javax.swing.JPanel
 		this.conManager = conManager;
 
 		initComponents();
+		initSourceMenu();
 		updateCompareButton();
 		load();
 	}
@@ -155,6 +161,42 @@ public class DatabaseSelectorTab extends javax.swing.JPanel
 		loadDatabasesWorker.execute();
 	}
 
+	private void initSourceMenu()
+	{
+		JPopupMenu menu = new JPopupMenu();
+		JMenuItem compareWithFiles = new JMenuItem("Compare with files ...");
+		compareWithFiles.addActionListener((e) -> startFileCompare());
+		menu.add(compareWithFiles);
+		serverADatabases.setComponentPopupMenu(menu);
+	}
+
+	private void startFileCompare()
+	{
+		String databaseA = serverADatabases.getSelectedValue();
+		if (databaseA == null)
+			return;
+
+		// a dump, a snapshot or a directory of .sql files, e.g. the schema as kept in version control
+		JFileChooser chooser = new JFileChooser();
+		chooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+		chooser.setDialogTitle("Compare " + databaseA + " with");
+		if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION)
+			return;
+
+		File file = chooser.getSelectedFile();
+		try
+		{
+			SchemaSource source = file.isDirectory() ? new SqlDirectorySource(file, databaseA) : Main.openSource(file);
+			comparionTab.addTab(databaseA + " <-> " + file.getName(),
+				new ResultTab(comparionTab, conManager, databaseA, source));
+		}
+		catch (IOException e)
+		{
+			LOG.error("Could not open " + file, e);
+			new SwingUserInteraction(comparionTab).showErrorMessage("Could not open " + file, e);
+		}
+	}
+
 	private void tryAutoSelect(JList<String> listA, JList<String> listB)
 	{
 		String valueA = listA.getSelectedValue();
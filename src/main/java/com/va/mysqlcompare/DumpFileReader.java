@@ -0,0 +1,541 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Reads the DDL of a mysqldump file (or any other .sql script) without a server. The file is mapped
+// window by window and scanned byte by byte, only CREATE, DROP and USE statements are kept in memory,
+// so the size of the file does not matter, only the size of its largest CREATE statement.
+public class DumpFileReader implements SchemaSource
+{
+	private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+	private static final String IDENTIFIER = "(?:`((?:[^`]|``)+)`|([\\w$]+))";
+	private static final String USER = "(?:`[^`]*`|'[^']*'|[^\\s@]+)(?:@(?:`[^`]*`|'[^']*'|\\S+))?";
+	private static final Pattern CREATE_PATTERN = Pattern.compile("^CREATE\\s+(?:OR\\s+REPLACE\\s+)?" +
+		"(?:ALGORITHM\\s*=\\s*\\w+\\s+)?(?:DEFINER\\s*=\\s*" + USER + "\\s+)?" +
+		"(?:SQL\\s+SECURITY\\s+\\w+\\s+)?(?:TEMPORARY\\s+)?(TABLE|VIEW|PROCEDURE|FUNCTION)\\s+" +
+		"(?:IF\\s+NOT\\s+EXISTS\\s+)?(?:" + IDENTIFIER + "\\s*\\.\\s*)?" + IDENTIFIER,
+		Pattern.CASE_INSENSITIVE);
+	private static final Pattern TRIGGER_PATTERN = Pattern.compile("^CREATE\\s+(?:DEFINER\\s*=\\s*" + USER +
+		"\\s+)?TRIGGER\\s+(?:" + IDENTIFIER + "\\s*\\.\\s*)?" + IDENTIFIER + "\\s+(BEFORE|AFTER)\\s+" +
+		"(INSERT|UPDATE|DELETE)\\s+ON\\s+(?:" + IDENTIFIER + "\\s*\\.\\s*)?" + IDENTIFIER +
+		"\\s+FOR\\s+EACH\\s+ROW\\s+(?:(?:FOLLOWS|PRECEDES)\\s+" + IDENTIFIER + "\\s+)?(.*)$",
+		Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+	private static final Pattern DROP_PATTERN = Pattern.compile("^DROP\\s+(TABLE|VIEW|PROCEDURE|FUNCTION|TRIGGER)\\s+" +
+		"(?:IF\\s+EXISTS\\s+)?(?:" + IDENTIFIER + "\\s*\\.\\s*)?" + IDENTIFIER, Pattern.CASE_INSENSITIVE);
+	private static final Pattern USE_PATTERN = Pattern.compile("^USE\\s+" + IDENTIFIER, Pattern.CASE_INSENSITIVE);
+
+	private final File file;
+	private final String databaseName;
+	private Collations collations = Collations.DEFAULT;
+
+	// databaseName selects one database of a dump with several, null takes everything
+	public DumpFileReader(File file, String databaseName)
+	{
+		this.file = file;
+		this.databaseName = databaseName;
+	}
+
+	public File getFile()
+	{
+		return file;
+	}
+
+	@Override
+	public void setCollations(Collations collations)
+	{
+		this.collations = collations;
+	}
+
+	@Override
+	public String getName()
+	{
+		return (databaseName != null ? databaseName + " (" + file.getName() + ")" : file.getName());
+	}
+
+	@Override
+	public SchemaModel readSchema() throws IOException
+	{
+		Content content = readContent();
+		return buildSchema(databaseName != null ? databaseName
+			: content.currentDatabase != null ? content.currentDatabase : file.getName(),
+			Collections.singletonList(content));
+	}
+
+	Content readContent() throws IOException
+	{
+		Content content = new Content();
+		new Scanner(content).scan();
+		return content;
+	}
+
+	static SchemaModel buildSchema(String databaseName, Collection<Content> contents)
+	{
+		// with several files the objects of later ones replace those of earlier ones with the same name
+		LinkedHashMap<String, CreateTableParser.Result> tables = new LinkedHashMap<>();
+		LinkedHashMap<String, ViewInfo> views = new LinkedHashMap<>();
+		LinkedHashMap<String, ProcedureInfo> procedures = new LinkedHashMap<>();
+		LinkedHashMap<String, TriggerInfo> triggers = new LinkedHashMap<>();
+		for (Content content : contents)
+		{
+			tables.putAll(content.tables);
+			views.putAll(content.views);
+			procedures.putAll(content.procedures);
+			triggers.putAll(content.triggers);
+		}
+
+		SchemaCatalog catalog = new SchemaCatalog(databaseName);
+		NamedObjectList<TableInfo> tableList = new NamedObjectList<>();
+		HashMap<String, NamedObjectList<FieldInfo>> tableFields = new HashMap<>();
+		HashMap<String, HashMap<String, KeyInfo>> tableKeys = new HashMap<>();
+		NamedObjectList<ForeignKeyInfo> foreignKeyList = new NamedObjectList<>();
+		NamedObjectList<PartitionInfo> partitionList = new NamedObjectList<>();
+		for (CreateTableParser.Result parsed : tables.values())
+		{
+			TableInfo tableInfo = parsed.getTableInfo();
+			tableList.add(tableInfo);
+			tableFields.put(tableInfo.getName().toLowerCase(), parsed.getFields());
+			tableKeys.put(tableInfo.getName().toLowerCase(), parsed.getKeys());
+			parsed.getForeignKeys().forEach(foreignKeyList::add);
+			if (parsed.getPartitionInfo() != null)
+				partitionList.add(parsed.getPartitionInfo());
+			catalog.add(new SchemaCatalog.Entry(tableInfo.getName(), SchemaCatalog.ObjectType.TABLE,
+				tableInfo.getEngine(), tableInfo.getCollation(), null, null, null, null));
+		}
+		NamedObjectList<ViewInfo> viewList = new NamedObjectList<>();
+		for (ViewInfo viewInfo : views.values())
+		{
+			viewList.add(viewInfo);
+			catalog.add(new SchemaCatalog.Entry(viewInfo.getName(), SchemaCatalog.ObjectType.VIEW, null, null, null,
+				null, null, null));
+		}
+		NamedObjectList<ProcedureInfo> procedureList = new NamedObjectList<>();
+		for (ProcedureInfo procedureInfo : procedures.values())
+		{
+			procedureList.add(procedureInfo);
+			catalog.add(new SchemaCatalog.Entry(procedureInfo.getName(),
+				SchemaCatalog.ObjectType.valueOf(procedureInfo.getType()), null, null, null, null, null, null));
+		}
+
+		NamedObjectList<TriggerInfo> triggerList = new NamedObjectList<>();
+		triggers.values().forEach(triggerList::add);
+
+		return new SchemaModel(catalog, tableList, tableFields, tableKeys, viewList, procedureList, triggerList,
+			foreignKeyList, partitionList);
+	}
+
+	private void handleStatement(Content content, String statement, int line) throws IOException
+	{
+		Matcher matcher = USE_PATTERN.matcher(statement);
+		if (matcher.find())
+		{
+			content.currentDatabase = getIdentifier(matcher, 1);
+			return;
+		}
+
+		matcher = TRIGGER_PATTERN.matcher(statement);
+		if (matcher.find())
+		{
+			handleTrigger(content, matcher);
+			return;
+		}
+
+		boolean create = true;
+		matcher = CREATE_PATTERN.matcher(statement);
+		if (!matcher.find())
+		{
+			create = false;
+			matcher = DROP_PATTERN.matcher(statement);
+			if (!matcher.find())
+				return;
+		}
+
+		String database = getIdentifier(matcher, 2);
+		if (database == null)
+			database = content.currentDatabase;
+		if (databaseName != null && database != null && !databaseName.equalsIgnoreCase(database))
+			return;
+
+		final String type = matcher.group(1).toUpperCase(Locale.ROOT);
+		final String name = getIdentifier(matcher, 4);
+		final String key = name.toLowerCase();
+
+		// mysqldump creates placeholders for views and replaces them later, so the last statement wins
+		if (!create)
+		{
+			switch (type)
+			{
+				case "TABLE":
+					content.tables.remove(key);
+					break;
+				case "VIEW":
+					content.views.remove(key);
+					break;
+				case "TRIGGER":
+					content.triggers.remove(key);
+					break;
+				default:
+					content.procedures.remove(type + "." + key);
+			}
+			return;
+		}
+
+		switch (type)
+		{
+			case "TABLE":
+				try
+				{
+					content.views.remove(key);
+					content.tables.put(key, CreateTableParser.parse(name, statement, collations));
+				}
+				catch (SQLException e)
+				{
+					throw new IOException("Cannot parse table " + name + " at line " + line + " of " + file, e);
+				}
+				break;
+			case "VIEW":
+				content.tables.remove(key);
+				content.views.put(key, new ViewInfo(name, statement));
+				break;
+			default:
+				content.procedures.put(type + "." + key, new ProcedureInfo(name, type, statement));
+		}
+	}
+
+	private void handleTrigger(Content content, Matcher matcher)
+	{
+		String database = getIdentifier(matcher, 1);
+		if (database == null)
+			database = content.currentDatabase;
+		if (databaseName != null && database != null && !databaseName.equalsIgnoreCase(database))
+			return;
+
+		final String name = getIdentifier(matcher, 3);
+		content.triggers.put(name.toLowerCase(), new TriggerInfo(name, getIdentifier(matcher, 9),
+			matcher.group(5), matcher.group(6), matcher.group(13).trim()));
+	}
+
+	private static String getIdentifier(Matcher matcher, int group)
+	{
+		if (matcher.group(group) != null)
+			return matcher.group(group).replace("``", "`");
+		return matcher.group(group + 1);
+	}
+
+	private enum State
+	{
+		CODE,
+		SINGLE_QUOTE,
+		DOUBLE_QUOTE,
+		BACKTICK,
+		LINE_COMMENT,
+		BLOCK_COMMENT,
+	}
+
+	static class Content
+	{
+		private final LinkedHashMap<String, CreateTableParser.Result> tables = new LinkedHashMap<>();
+		private final LinkedHashMap<String, ViewInfo> views = new LinkedHashMap<>();
+		private final LinkedHashMap<String, ProcedureInfo> procedures = new LinkedHashMap<>();
+		private final LinkedHashMap<String, TriggerInfo> triggers = new LinkedHashMap<>();
+		private String currentDatabase;
+	}
+
+	private class Scanner
+	{
+		// statements starting with anything else are skipped without being kept, INSERTs can be huge
+		private final String[] keptStatements = { "CREATE", "DROP", "USE", "DELIMITER" };
+
+		private FileChannel channel;
+		private MappedByteBuffer window;
+		private long windowEnd = 0;
+
+		private byte[] statement = new byte[4096];
+		private int length = 0;
+		private boolean skipping = false;
+		private boolean firstWordDone = false;
+		private boolean delimiterCommand = false;
+		private boolean versionedComment = false;
+		private byte[] delimiter = { ';' };
+		private int line = 1;
+		private int statementLine = 1;
+		private final Content content;
+
+		Scanner(Content content)
+		{
+			this.content = content;
+		}
+
+		void scan() throws IOException
+		{
+			try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+			{
+				channel = fileChannel;
+				State state = State.CODE;
+				int b;
+				while ((b = read()) != -1)
+				{
+					switch (state)
+					{
+						case CODE:
+							state = scanCode(b);
+							break;
+						case SINGLE_QUOTE:
+							state = scanQuoted(b, '\'', State.SINGLE_QUOTE);
+							break;
+						case DOUBLE_QUOTE:
+							state = scanQuoted(b, '"', State.DOUBLE_QUOTE);
+							break;
+						case BACKTICK:
+							append(b);
+							if (b == '`')
+								state = State.CODE;
+							break;
+						case LINE_COMMENT:
+							if (b == '\n')
+							{
+								state = State.CODE;
+								scanCode(b);
+							}
+							break;
+						case BLOCK_COMMENT:
+							if (b == '*' && peek() == '/')
+							{
+								read();
+								state = State.CODE;
+								append(' ');
+							}
+							break;
+					}
+				}
+				finishStatement();
+			}
+		}
+
+		private State scanCode(int b) throws IOException
+		{
+			if (delimiterCommand)
+			{
+				// DELIMITER is a client command, it ends with the line and not with the delimiter
+				if (b == '\n')
+				{
+					String command = decode().trim();
+					String value = command.substring("DELIMITER".length()).trim();
+					if (!value.isEmpty())
+						delimiter = value.getBytes(StandardCharsets.UTF_8);
+					reset();
+				}
+				else
+				{
+					append(b);
+				}
+				return State.CODE;
+			}
+
+			switch (b)
+			{
+				case '\'':
+					append(b);
+					return State.SINGLE_QUOTE;
+				case '"':
+					append(b);
+					return State.DOUBLE_QUOTE;
+				case '`':
+					append(b);
+					return State.BACKTICK;
+				case '#':
+					return State.LINE_COMMENT;
+				case '-':
+					if (peek() == '-')
+					{
+						read();
+						int next = peek();
+						if (next == ' ' || next == '\t' || next == '\r' || next == '\n' || next == -1)
+							return State.LINE_COMMENT;
+						append('-');
+					}
+					break;
+				case '/':
+					if (peek() == '*')
+					{
+						read();
+						if (peek() != '!')
+							return State.BLOCK_COMMENT;
+
+						// the content of a versioned comment is executed by the server, only the markers go
+						read();
+						while (peek() >= '0' && peek() <= '9')
+						{
+							read();
+						}
+						versionedComment = true;
+						append(' ');
+						return State.CODE;
+					}
+					break;
+				case '*':
+					if (versionedComment && peek() == '/')
+					{
+						read();
+						versionedComment = false;
+						append(' ');
+						return State.CODE;
+					}
+					break;
+			}
+
+			if (length == 0 && Character.isWhitespace(b))
+			{
+				statementLine = line;
+				return State.CODE;
+			}
+
+			append(b);
+			if (!firstWordDone && (Character.isWhitespace(b) || b == '(' || b == ';'))
+				checkFirstWord();
+			if (!delimiterCommand && endsWithDelimiter())
+			{
+				length -= delimiter.length;
+				finishStatement();
+			}
+			return State.CODE;
+		}
+
+		private State scanQuoted(int b, char quote, State state) throws IOException
+		{
+			append(b);
+			if (b == '\\')
+			{
+				int next = read();
+				if (next != -1)
+					append(next);
+				return state;
+			}
+			return b == quote ? State.CODE : state;
+		}
+
+		private void checkFirstWord()
+		{
+			String word = new String(statement, 0, length - 1, StandardCharsets.UTF_8).trim()
+				.toUpperCase(Locale.ROOT);
+			// a versioned comment at the start leaves some whitespace before the first word
+			if (word.isEmpty())
+				return;
+
+			firstWordDone = true;
+			skipping = Arrays.stream(keptStatements).noneMatch(word::equals);
+			delimiterCommand = word.equals("DELIMITER");
+		}
+
+		private boolean endsWithDelimiter()
+		{
+			if (length < delimiter.length)
+				return false;
+			for (int i = 0; i < delimiter.length; ++i)
+			{
+				if (statement[length - delimiter.length + i] != delimiter[i])
+					return false;
+			}
+			return true;
+		}
+
+		private void append(int b)
+		{
+			if (skipping && length > 64)
+			{
+				// only the tail is needed to find the delimiter
+				System.arraycopy(statement, length - delimiter.length, statement, 0, delimiter.length);
+				length = delimiter.length;
+			}
+			if (length == statement.length)
+				statement = Arrays.copyOf(statement, statement.length * 2);
+			statement[length++] = (byte)b;
+		}
+
+		private String decode()
+		{
+			return new String(statement, 0, length, StandardCharsets.UTF_8);
+		}
+
+		private void finishStatement() throws IOException
+		{
+			if (!skipping && length > 0)
+			{
+				String text = decode().trim();
+				if (!text.isEmpty())
+					handleStatement(content, text, statementLine);
+			}
+			reset();
+		}
+
+		private void reset()
+		{
+			length = 0;
+			skipping = false;
+			firstWordDone = false;
+			delimiterCommand = false;
+			statementLine = line;
+		}
+
+		private int read() throws IOException
+		{
+			if (!ensureWindow())
+				return -1;
+			int b = window.get() & 0xFF;
+			if (b == '\n')
+				line++;
+			return b;
+		}
+
+		private int peek() throws IOException
+		{
+			if (!ensureWindow())
+				return -1;
+			return window.get(window.position()) & 0xFF;
+		}
+
+		private boolean ensureWindow() throws IOException
+		{
+			if (window != null && window.hasRemaining())
+				return true;
+			long size = channel.size();
+			if (windowEnd >= size)
+				return false;
+
+			// the previous window is released by the garbage collector
+			long start = windowEnd;
+			windowEnd = Math.min(size, start + WINDOW_SIZE);
+			window = channel.map(FileChannel.MapMode.READ_ONLY, start, windowEnd - start);
+			return true;
+		}
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class FetchPlanner
+{
+	private static final Logger LOG = LoggerFactory.getLogger(FetchPlanner.class);
+
+	// observed times above this multiple of the estimate recalibrate the model
+	static final double LATENCY_TOLERANCE = 2.0;
+	// the probe only times one bulk query, the others of a fetch touch more tables: the file based
+	// information_schema of 5.7 opens every table again for each of them, the data dictionary of 8.0 does not
+	static final double FILE_BULK_PRIOR = 1.25;
+	static final double DATA_DICTIONARY_BULK_PRIOR = 0.8;
+
+	enum Strategy
+	{
+		BATCHED,
+		BULK
+	}
+
+	private final String serverVersion;
+	private final int batchSize;
+	private final int poolSize;
+	private double roundTripNanos;
+	private double objectQueryNanos;
+	private double bulkQueryNanos;
+
+	FetchPlanner(String serverVersion, long roundTripNanos, long objectQueryNanos, long bulkQueryNanos,
+		int batchSize, int poolSize)
+	{
+		this.serverVersion = serverVersion;
+		this.roundTripNanos = Math.max(1, roundTripNanos);
+		// the query costs only count the server side work on top of the round trip
+		this.objectQueryNanos = Math.max(0, objectQueryNanos - roundTripNanos);
+		this.bulkQueryNanos = Math.max(0, bulkQueryNanos - roundTripNanos);
+		this.batchSize = Math.max(1, batchSize);
+		this.poolSize = Math.max(1, poolSize);
+	}
+
+	String getServerVersion()
+	{
+		return serverVersion;
+	}
+
+	boolean isDataDictionary()
+	{
+		// since 8.0 information_schema is a set of views on the transactional data dictionary
+		try
+		{
+			return Integer.parseInt(serverVersion.replaceAll("[.-].*", "")) >= 8;
+		}
+		catch (NumberFormatException e)
+		{
+			return false;
+		}
+	}
+
+	Strategy plan(String objectType, int objectCount, int queriesPerObject, int bulkQueries)
+	{
+		double batched = estimate(Strategy.BATCHED, objectCount, queriesPerObject, bulkQueries);
+		double bulk = estimate(Strategy.BULK, objectCount, queriesPerObject, bulkQueries) * getBulkPrior();
+		Strategy strategy = batched < bulk ? Strategy.BATCHED : Strategy.BULK;
+
+		LOG.info("Fetching {} {} {}: batched {} ms, bulk {} ms (x{})", objectCount, objectType, strategy,
+			toMillis(batched), toMillis(bulk), getBulkPrior());
+
+		return strategy;
+	}
+
+	double getBulkPrior()
+	{
+		return isDataDictionary() ? DATA_DICTIONARY_BULK_PRIOR : FILE_BULK_PRIOR;
+	}
+
+	double estimate(Strategy strategy, int objectCount, int queriesPerObject, int bulkQueries)
+	{
+		switch (strategy)
+		{
+			case BATCHED:
+			{
+				long queries = (long)objectCount * queriesPerObject;
+				long rounds = (queries + batchSize - 1) / batchSize;
+				long parallel = Math.max(1, Math.min(poolSize, rounds));
+				return (rounds * roundTripNanos + queries * objectQueryNanos) / parallel;
+			}
+			case BULK:
+				return bulkQueries * (roundTripNanos + bulkQueryNanos);
+			default:
+				throw new IllegalArgumentException(strategy.toString());
+		}
+	}
+
+	boolean observe(String objectType, Strategy strategy, int objectCount, int queriesPerObject, int bulkQueries,
+		long nanos)
+	{
+		double expected = estimate(strategy, objectCount, queriesPerObject, bulkQueries);
+
+		LOG.debug("Fetched {} {} {} in {} ms, expected {} ms", objectCount, objectType, strategy, toMillis(nanos),
+			toMillis(expected));
+
+		if (nanos <= expected * LATENCY_TOLERANCE)
+			return false;
+
+		double factor = nanos / expected;
+		if (strategy == Strategy.BULK)
+		{
+			bulkQueryNanos *= factor;
+		}
+		else
+		{
+			roundTripNanos *= factor;
+			objectQueryNanos *= factor;
+		}
+
+		LOG.info("Fetching {} {} took {} ms instead of {} ms, recalibrated the cost model", objectType, strategy,
+			toMillis(nanos), toMillis(expected));
+
+		return true;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "MySQL " + serverVersion + (isDataDictionary() ? " (data dictionary)" : "") +
+			", round trip " + toMillis(roundTripNanos) + " ms, object query " + toMillis(objectQueryNanos) +
+			" ms, bulk query " + toMillis(bulkQueryNanos) + " ms";
+	}
+
+	private static long toMillis(double nanos)
+	{
+		return Math.round(nanos / 1000000);
+	}
+}
@@ -72,6 +72,24 @@ public class FieldInfo implements NamedObject, Serializable
 		}
 	}
 
+	FieldInfo(String tableName, String name, String previousFieldName, String columnType, String collation,
+		boolean nullValue, String defaultValue, boolean autoIncrement, GenerationType generationType,
+		String generationExpression, boolean generationUniqueKey) throws SQLException
+	{
+		this.tableName = tableName;
+		this.name = name;
+		this.previousFieldName = previousFieldName;
+
+		decodeType(columnType);
+		this.collation = collation;
+		this.nullValue = nullValue;
+		this.defaultValue = defaultValue;
+		this.autoIncrement = autoIncrement;
+		this.generationType = generationType;
+		this.generationExpression = generationExpression;
+		this.generationUniqueKey = generationUniqueKey;
+	}
+
 	private void decodeType(String type0) throws SQLException
 	{
 		Pattern pattern = Pattern.compile("([a-z]+)(\\((\\d+)\\))?", Pattern.CASE_INSENSITIVE);
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+public class ForeignKeyInfo implements NamedObject, Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private final String tableName;
+	private final String name;
+	private final ArrayList<String> columns = new ArrayList<>();
+	private final String referencedSchema;
+	private final String referencedTable;
+	private final ArrayList<String> referencedColumns = new ArrayList<>();
+	private final String updateRule;
+	private final String deleteRule;
+
+	// referencedSchema is null for a table in the same schema, so schemas with different names compare equal
+	public ForeignKeyInfo(String tableName, String name, String referencedSchema, String referencedTable,
+		String updateRule, String deleteRule)
+	{
+		this.tableName = tableName;
+		this.name = name;
+		this.referencedSchema = referencedSchema;
+		this.referencedTable = referencedTable;
+		this.updateRule = normalizeRule(updateRule);
+		this.deleteRule = normalizeRule(deleteRule);
+	}
+
+	private static String normalizeRule(String rule)
+	{
+		// InnoDB handles NO ACTION like RESTRICT, which is also what an omitted clause means
+		if (rule == null)
+			return "RESTRICT";
+		rule = rule.trim().replaceAll("\\s+", " ").toUpperCase();
+		return rule.equals("NO ACTION") ? "RESTRICT" : rule;
+	}
+
+	public void addColumn(String column, String referencedColumn)
+	{
+		columns.add(column);
+		referencedColumns.add(referencedColumn);
+	}
+
+	public String getTableName()
+	{
+		return tableName;
+	}
+
+	@Override
+	public String getName()
+	{
+		return name;
+	}
+
+	public List<String> getColumns()
+	{
+		return columns;
+	}
+
+	public String getReferencedSchema()
+	{
+		return referencedSchema;
+	}
+
+	public String getReferencedTable()
+	{
+		return referencedTable;
+	}
+
+	public List<String> getReferencedColumns()
+	{
+		return referencedColumns;
+	}
+
+	public String getUpdateRule()
+	{
+		return updateRule;
+	}
+
+	public String getDeleteRule()
+	{
+		return deleteRule;
+	}
+
+	private static List<String> toLowerCase(List<String> names)
+	{
+		List<String> output = new ArrayList<>(names.size());
+		names.forEach((name) -> output.add(name.toLowerCase()));
+		return output;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int hash = 7;
+		hash = 97 * hash + Objects.hashCode(this.tableName.toLowerCase());
+		hash = 29 * hash + Objects.hashCode(this.name.toLowerCase());
+		hash = 17 * hash + Objects.hashCode(toLowerCase(this.columns));
+		hash = 13 * hash + Objects.hashCode(this.referencedTable.toLowerCase());
+		hash = 11 * hash + Objects.hashCode(toLowerCase(this.referencedColumns));
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (obj == null)
+		{
+			return false;
+		}
+		if (getClass() != obj.getClass())
+		{
+			return false;
+		}
+		final ForeignKeyInfo other = (ForeignKeyInfo)obj;
+		if (!this.tableName.equalsIgnoreCase(other.tableName))
+		{
+			return false;
+		}
+		if (!this.name.equalsIgnoreCase(other.name))
+		{
+			return false;
+		}
+		if (!toLowerCase(this.columns).equals(toLowerCase(other.columns)))
+		{
+			return false;
+		}
+		if (this.referencedSchema == null ? other.referencedSchema != null
+			: !this.referencedSchema.equalsIgnoreCase(other.referencedSchema))
+		{
+			return false;
+		}
+		if (!this.referencedTable.equalsIgnoreCase(other.referencedTable))
+		{
+			return false;
+		}
+		if (!toLowerCase(this.referencedColumns).equals(toLowerCase(other.referencedColumns)))
+		{
+			return false;
+		}
+		if (!Objects.equals(this.updateRule, other.updateRule))
+		{
+			return false;
+		}
+		if (!Objects.equals(this.deleteRule, other.deleteRule))
+		{
+			return false;
+		}
+		return true;
+	}
+}
@@ -37,27 +37,34 @@ public class KeyInfo implements Serializable
 		this.name = result.getString("Key_name");
 		this.unique = !result.getBoolean("Non_unique");
 		this.fields = new ArrayList<>();
-		fillFields(result);
 	}
 
-	private void fillFields(ResultSet result) throws SQLException
+	KeyInfo(String tableName, String name, boolean unique)
 	{
-		while (!result.isAfterLast() && name.equals(result.getString("Key_name")))
+		this.tableName = tableName;
+		this.name = name;
+		this.unique = unique;
+		this.fields = new ArrayList<>();
+	}
+
+	void addField(ResultSet result) throws SQLException
+	{
+		String fieldName = result.getString("Column_name");
+		int keyLength;
+		try
 		{
-			String fieldName = result.getString("Column_name");
-			int keyLength;
-			try
-			{
-				keyLength = Integer.parseInt(result.getString("Sub_part"));
-			}
-			catch (NumberFormatException e)
-			{
-				keyLength = -1;
-			}
-			fields.add(new KeyField(fieldName, keyLength));
-			result.next();
+			keyLength = Integer.parseInt(result.getString("Sub_part"));
+		}
+		catch (NumberFormatException e)
+		{
+			keyLength = -1;
 		}
-		result.previous();
+		addField(fieldName, keyLength);
+	}
+
+	void addField(String fieldName, int keyLength)
+	{
+		fields.add(new KeyField(fieldName, keyLength));
 	}
 
 	public String getTableName()
@@ -129,8 +136,10 @@ public class KeyInfo implements Serializable
 		return true;
 	}
 
-	public static class KeyField
+	public static class KeyField implements Serializable
 	{
+		private static final long serialVersionUID = 1L;
+
 		private final String name;
 		private final int length;
 
@@ -15,13 +15,18 @@
  */
 package com.va.mysqlcompare;
 
+import com.va.common.UserInteraction;
 import com.va.securestore.DataStorePasswordStore;
 import com.va.securestore.PropertiesFileDataStore;
 import com.va.securestore.Store;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Image;
+import java.io.Console;
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 import javax.swing.ImageIcon;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
@@ -112,7 +117,7 @@ public class Main
 
 	private static Store store = new Store();
 
-	private static File getConfigStorePath()
+	static File getConfigStorePath()
 	{
 		File path = new File(System.getProperty("user.home") + File.separator + ".MySQLCompare");
 		if (!path.exists())
@@ -132,13 +137,114 @@ public class Main
 		store.passwords = new DataStorePasswordStore(store.data);
 	}
 
+	private static void exportSnapshot(String connectionName, List<String> databaseNames, File file) throws Exception
+	{
+		ConnectionsList connections = new ConnectionsList();
+		connections.load(store.data);
+		ConnectionInfo serverInfo = connections.stream()
+			.filter((c) -> c.getName().equals(connectionName))
+			.findFirst()
+			.orElseThrow(() -> new IllegalArgumentException("Unknown connection `" + connectionName + "`"));
+
+		// one server on both sides, only the first connection is used
+		try (ConnectionsManager conManager = new ConnectionsManager(serverInfo, serverInfo, store.passwords))
+		{
+			if (!conManager.connect(new ConsoleUserInteraction()))
+				throw new IllegalStateException("Could not connect to " + serverInfo);
+
+			try (DBOReader reader = new DBOReader(conManager.getConnectionsA()))
+			{
+				reader.setBatchSize(serverInfo.getBatchSize());
+				reader.setQueryTimeout(serverInfo.getQueryTimeout());
+				reader.setThrottle(conManager.getThrottleA());
+				reader.setFetchMode(serverInfo.getFetchMode());
+				reader.setWorkers(conManager.getWorkersA());
+				if (databaseNames.size() == 1)
+				{
+					SchemaSnapshot.write(reader.readSchema(databaseNames.get(0)), file);
+				}
+				else
+				{
+					// several schemas are read together in one pass and written to one file each
+					if (!file.isDirectory() && !file.mkdirs())
+						throw new IOException("Cannot create directory " + file);
+					for (SchemaModel schema : reader.readSchemas(databaseNames).values())
+					{
+						SchemaSnapshot.write(schema, new File(file, schema.getDatabaseName() + ".snapshot"));
+					}
+				}
+			}
+		}
+		LOG.info("Wrote snapshot of {} on {} to {}", databaseNames, serverInfo, file);
+	}
+
+	private static void compareFiles(File fileA, File fileB) throws Exception
+	{
+		// nothing is read from a server, so no connection is needed
+		try (Compare compare = new Compare(null))
+		{
+			compare.setSourceA(openSource(fileA));
+			compare.setSourceB(openSource(fileB));
+			CompareResult result = compare.doCompare(null, null);
+
+			new DDERenderer(result.getDiffs()).render(new DDERenderer.OutputWriter()
+			{
+				@Override
+				public void println(String string)
+				{
+					System.out.println(string);
+				}
+
+				@Override
+				public void print(String string)
+				{
+					System.out.print(string);
+				}
+			});
+		}
+	}
+
+	static SchemaSource openSource(File file) throws IOException
+	{
+		return SchemaSnapshot.isSnapshot(file) ? SchemaSnapshot.open(file) : new DumpFileReader(file, null);
+	}
+
 	public static void main(String[] args) throws Exception
 	{
 		openStore();
 
+		// headless use on hosts which can reach a server the desktop cannot, a comma separated list of
+		// schemas is exported into a directory
+		if (args.length == 4 && args[0].equals("--export-snapshot"))
+		{
+			exportSnapshot(args[1], Arrays.asList(args[2].split("\\s*,\\s*")), new File(args[3]));
+			return;
+		}
+		if (args.length == 3 && args[0].equals("--compare"))
+		{
+			compareFiles(new File(args[1]), new File(args[2]));
+			return;
+		}
+
 		SwingUtilities.invokeLater(() ->
 		{
 			new MainFrame(store).setVisible(true);
 		});
 	}
+
+	private static class ConsoleUserInteraction implements UserInteraction
+	{
+		@Override
+		public char[] getPassword(String realm)
+		{
+			Console console = System.console();
+			return console != null ? console.readPassword("%s: ", realm) : null;
+		}
+
+		@Override
+		public void showErrorMessage(String message, Throwable t)
+		{
+			LOG.error(message, t);
+		}
+	}
 }
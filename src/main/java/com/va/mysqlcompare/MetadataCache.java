@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class MetadataCache
+{
+	private static final Logger LOG = LoggerFactory.getLogger(MetadataCache.class);
+
+	// files of another format version are dropped instead of being read
+	// 2: collations without COLLATE are the defaults of the server instead of <charset>_general_ci
+	private static final int FORMAT_VERSION = 2;
+	private static final ObjectInputFilter INPUT_FILTER = ObjectInputFilter.Config.createFilter(
+		"com.va.mysqlcompare.*;java.lang.*;java.util.*;java.sql.Timestamp;!*");
+
+	private final File directory;
+
+	public MetadataCache(File directory)
+	{
+		this.directory = directory;
+	}
+
+	public File getDirectory()
+	{
+		return directory;
+	}
+
+	synchronized SchemaEntry load(String serverId, String databaseName)
+	{
+		File file = getFile(serverId, databaseName);
+		if (!file.exists())
+			return new SchemaEntry(serverId, databaseName);
+
+		try (InputStream input = new BufferedInputStream(Files.newInputStream(file.toPath()));
+			ObjectInputStream stream = new ObjectInputStream(input))
+		{
+			stream.setObjectInputFilter(INPUT_FILTER);
+			if (stream.readInt() == FORMAT_VERSION)
+			{
+				SchemaEntry entry = (SchemaEntry)stream.readObject();
+				if (entry.serverId.equals(serverId) && entry.databaseName.equalsIgnoreCase(databaseName))
+					return entry;
+			}
+		}
+		catch (IOException | ClassNotFoundException | ClassCastException e)
+		{
+			LOG.warn("Ignoring unreadable metadata cache " + file, e);
+		}
+		return new SchemaEntry(serverId, databaseName);
+	}
+
+	synchronized void save(SchemaEntry entry)
+	{
+		if (!entry.modified)
+			return;
+
+		if (!directory.exists() && !directory.mkdirs())
+		{
+			LOG.warn("Cannot create metadata cache directory " + directory);
+			return;
+		}
+
+		// written to a temporary file first, so a crash never leaves a truncated cache behind
+		File file = getFile(entry.serverId, entry.databaseName);
+		File tempFile = new File(directory, file.getName() + ".tmp");
+		try
+		{
+			try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(tempFile.toPath()));
+				ObjectOutputStream stream = new ObjectOutputStream(output))
+			{
+				stream.writeInt(FORMAT_VERSION);
+				stream.writeObject(entry);
+			}
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+			entry.modified = false;
+		}
+		catch (IOException e)
+		{
+			LOG.warn("Cannot write metadata cache " + file, e);
+		}
+	}
+
+	private File getFile(String serverId, String databaseName)
+	{
+		return new File(directory, hash(serverId + "/" + databaseName.toLowerCase()) + ".cache");
+	}
+
+	private static String hash(String value)
+	{
+		try
+		{
+			StringBuilder output = new StringBuilder();
+			for (byte b : MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8)))
+			{
+				output.append(String.format("%02x", b));
+			}
+			return output.toString();
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static class SchemaEntry implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final String serverId;
+		private final String databaseName;
+		private final HashMap<String, CachedTable> tables = new HashMap<>();
+		private final HashMap<String, CachedRoutine> routines = new HashMap<>();
+		private transient boolean modified = false;
+
+		SchemaEntry(String serverId, String databaseName)
+		{
+			this.serverId = serverId;
+			this.databaseName = databaseName;
+		}
+
+		synchronized CachedTable getTable(SchemaCatalog.Entry entry, String digest)
+		{
+			// the update time of InnoDB tables follows the data, so a table is revalidated by its
+			// create time (changed by every table rebuild) and the digest of its definition
+			CachedTable table = tables.get(entry.getName().toLowerCase());
+			if (table == null || digest == null || !digest.equals(table.digest) ||
+				!Objects.equals(entry.getCreateTime(), table.createTime))
+			{
+				return null;
+			}
+			return table;
+		}
+
+		synchronized void putTable(SchemaCatalog.Entry entry, String digest, TableInfo tableInfo,
+			NamedObjectList<FieldInfo> fields, HashMap<String, KeyInfo> keys)
+		{
+			if (digest == null)
+				return;
+
+			tables.put(entry.getName().toLowerCase(),
+				new CachedTable(entry.getCreateTime(), digest, tableInfo, fields, keys));
+			modified = true;
+		}
+
+		synchronized ProcedureInfo getRoutine(SchemaCatalog.Entry entry)
+		{
+			// the routine timestamps have no other meaning than the last change of the definition
+			CachedRoutine routine = routines.get(getRoutineKey(entry));
+			if (routine == null || entry.getUpdateTime() == null ||
+				!Objects.equals(entry.getCreateTime(), routine.createTime) ||
+				!Objects.equals(entry.getUpdateTime(), routine.updateTime))
+			{
+				return null;
+			}
+			return routine.procedureInfo;
+		}
+
+		synchronized void putRoutine(SchemaCatalog.Entry entry, ProcedureInfo procedureInfo)
+		{
+			if (entry.getUpdateTime() == null)
+				return;
+
+			routines.put(getRoutineKey(entry),
+				new CachedRoutine(entry.getCreateTime(), entry.getUpdateTime(), procedureInfo));
+			modified = true;
+		}
+
+		synchronized void retain(SchemaCatalog catalog)
+		{
+			// objects dropped on the server would otherwise stay in the cache forever
+			modified |= tables.keySet().removeIf((name) -> !catalog.getTables().contains(name));
+			modified |= routines.keySet().removeIf((key) ->
+			{
+				SchemaCatalog.Entry entry = catalog.getRoutines().get(key.substring(key.indexOf('.') + 1));
+				return entry == null || !key.equals(getRoutineKey(entry));
+			});
+		}
+
+		boolean isModified()
+		{
+			return modified;
+		}
+
+		private static String getRoutineKey(SchemaCatalog.Entry entry)
+		{
+			return entry.getType() + "." + entry.getName().toLowerCase();
+		}
+	}
+
+	static class CachedTable implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final Timestamp createTime;
+		private final String digest;
+		private final TableInfo tableInfo;
+		private final NamedObjectList<FieldInfo> fields;
+		private final HashMap<String, KeyInfo> keys;
+
+		CachedTable(Timestamp createTime, String digest, TableInfo tableInfo, NamedObjectList<FieldInfo> fields,
+			HashMap<String, KeyInfo> keys)
+		{
+			this.createTime = createTime;
+			this.digest = digest;
+			this.tableInfo = tableInfo;
+			this.fields = fields;
+			this.keys = keys;
+		}
+
+		TableInfo getTableInfo()
+		{
+			return tableInfo;
+		}
+
+		NamedObjectList<FieldInfo> getFields()
+		{
+			return fields;
+		}
+
+		HashMap<String, KeyInfo> getKeys()
+		{
+			return keys;
+		}
+	}
+
+	private static class CachedRoutine implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final Timestamp createTime;
+		private final Timestamp updateTime;
+		private final ProcedureInfo procedureInfo;
+
+		CachedRoutine(Timestamp createTime, Timestamp updateTime, ProcedureInfo procedureInfo)
+		{
+			this.createTime = createTime;
+			this.updateTime = updateTime;
+			this.procedureInfo = procedureInfo;
+		}
+	}
+}
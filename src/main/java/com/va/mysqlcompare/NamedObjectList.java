@@ -44,6 +44,11 @@ class NamedObjectList<T extends NamedObject> implements Serializable, Iterable<T
 		return fields.iterator();
 	}
 
+	public int size()
+	{
+		return fields.size();
+	}
+
 	public boolean contains(String fieldName)
 	{
 		return map.containsKey(fieldName.toLowerCase());
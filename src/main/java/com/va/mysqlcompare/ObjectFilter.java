@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+import com.va.mysqlcompare.SchemaCatalog.ObjectType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+public class ObjectFilter
+{
+	private final List<Rule> rules = new ArrayList<>();
+
+	// one rule per line: <include|exclude> <table|view|function|procedure|*> <glob or /regex/>,
+	// a glob has to match the whole name, a regular expression any part of it
+	public static ObjectFilter parse(String spec)
+	{
+		ObjectFilter filter = new ObjectFilter();
+		if (spec == null)
+			return filter;
+
+		for (String line : spec.split("\\R"))
+		{
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+
+			String[] parts = line.split("\\s+", 3);
+			if (parts.length != 3)
+				throw new IllegalArgumentException("Invalid filter rule `" + line + "`");
+
+			boolean include;
+			switch (parts[0].toLowerCase(Locale.ROOT))
+			{
+				case "include":
+					include = true;
+					break;
+				case "exclude":
+					include = false;
+					break;
+				default:
+					throw new IllegalArgumentException("Invalid filter action `" + parts[0] + "`");
+			}
+
+			ObjectType type = parts[1].equals("*") ? null : ObjectType.valueOf(parts[1].toUpperCase(Locale.ROOT));
+
+			String pattern = parts[2];
+			boolean regex = pattern.length() > 1 && pattern.startsWith("/") && pattern.endsWith("/");
+			if (regex)
+				pattern = pattern.substring(1, pattern.length() - 1);
+
+			filter.rules.add(new Rule(include, type, pattern, regex));
+		}
+		return filter;
+	}
+
+	public void include(ObjectType type, String pattern, boolean regex)
+	{
+		rules.add(new Rule(true, type, pattern, regex));
+	}
+
+	public void exclude(ObjectType type, String pattern, boolean regex)
+	{
+		rules.add(new Rule(false, type, pattern, regex));
+	}
+
+	public void addAll(ObjectFilter filter)
+	{
+		rules.addAll(filter.rules);
+	}
+
+	public boolean isEmpty()
+	{
+		return rules.isEmpty();
+	}
+
+	public boolean accepts(ObjectType type, String name)
+	{
+		boolean hasIncludes = false;
+		boolean included = false;
+		for (Rule rule : rules)
+		{
+			if (!rule.appliesTo(type))
+				continue;
+
+			if (rule.include)
+			{
+				hasIncludes = true;
+				included = included || rule.matches(name);
+			}
+			else if (rule.matches(name))
+			{
+				return false;
+			}
+		}
+		return !hasIncludes || included;
+	}
+
+	SqlCondition toSql(String column, ObjectType... types)
+	{
+		// a rule for only some of the types a query returns cannot be expressed on the name alone,
+		// these and the regular expressions are left to accepts()
+		List<ObjectType> queryTypes = Arrays.asList(types);
+		StringBuilder clause = new StringBuilder();
+		List<String> parameters = new ArrayList<>();
+
+		List<Rule> includes = new ArrayList<>();
+		boolean includesPushable = true;
+		for (Rule rule : rules)
+		{
+			if (rule.type != null && !queryTypes.contains(rule.type))
+				continue;
+
+			boolean pushable = !rule.regex && (rule.type == null || queryTypes.size() == 1);
+			if (rule.include)
+			{
+				includes.add(rule);
+				includesPushable = includesPushable && pushable;
+			}
+			else if (pushable)
+			{
+				clause.append(" AND LOWER(").append(column).append(") NOT LIKE ? ESCAPE '!'");
+				parameters.add(rule.getLikePattern());
+			}
+		}
+
+		if (!includes.isEmpty() && includesPushable)
+		{
+			clause.append(" AND (");
+			for (int i = 0; i < includes.size(); ++i)
+			{
+				if (i > 0)
+					clause.append(" OR ");
+				clause.append("LOWER(").append(column).append(") LIKE ? ESCAPE '!'");
+				parameters.add(includes.get(i).getLikePattern());
+			}
+			clause.append(")");
+		}
+
+		return new SqlCondition(clause.toString(), parameters);
+	}
+
+	static class SqlCondition
+	{
+		private final String clause;
+		private final List<String> parameters;
+
+		SqlCondition(String clause, List<String> parameters)
+		{
+			this.clause = clause;
+			this.parameters = parameters;
+		}
+
+		String getClause()
+		{
+			return clause;
+		}
+
+		List<String> getParameters()
+		{
+			return parameters;
+		}
+	}
+
+	private static class Rule
+	{
+		private final boolean include;
+		private final ObjectType type;
+		private final String pattern;
+		private final boolean regex;
+		private final Pattern compiled;
+
+		Rule(boolean include, ObjectType type, String pattern, boolean regex)
+		{
+			this.include = include;
+			this.type = type;
+			this.pattern = pattern;
+			this.regex = regex;
+			// object names are compared case insensitive everywhere else as well
+			this.compiled = Pattern.compile(regex ? pattern : globToRegex(pattern), Pattern.CASE_INSENSITIVE);
+		}
+
+		boolean appliesTo(ObjectType objectType)
+		{
+			return type == null || type == objectType;
+		}
+
+		boolean matches(String name)
+		{
+			return regex ? compiled.matcher(name).find() : compiled.matcher(name).matches();
+		}
+
+		String getLikePattern()
+		{
+			StringBuilder output = new StringBuilder();
+			for (char c : pattern.toLowerCase(Locale.ROOT).toCharArray())
+			{
+				switch (c)
+				{
+					case '*':
+						output.append('%');
+						break;
+					case '?':
+						output.append('_');
+						break;
+					case '%':
+					case '_':
+					case '!':
+						output.append('!').append(c);
+						break;
+					default:
+						output.append(c);
+				}
+			}
+			return output.toString();
+		}
+
+		private static String globToRegex(String glob)
+		{
+			StringBuilder output = new StringBuilder();
+			for (char c : glob.toCharArray())
+			{
+				switch (c)
+				{
+					case '*':
+						output.append(".*");
+						break;
+					case '?':
+						output.append('.');
+						break;
+					default:
+						output.append(Pattern.quote(String.valueOf(c)));
+				}
+			}
+			return output.toString();
+		}
+	}
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+// The partitioning of one table, named like the table since a table has at most one
+public class PartitionInfo implements NamedObject, Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private final String tableName;
+	private final String method;
+	private final String expression;
+	private final String subpartitionMethod;
+	private final String subpartitionExpression;
+	private final int subpartitionCount;
+	private final ArrayList<Partition> partitions = new ArrayList<>();
+
+	// method as in information_schema.PARTITIONS, e.g. RANGE, LIST COLUMNS or LINEAR HASH
+	public PartitionInfo(String tableName, String method, String expression, String subpartitionMethod,
+		String subpartitionExpression, int subpartitionCount)
+	{
+		this.tableName = tableName;
+		this.method = normalizeMethod(method);
+		this.expression = expression != null ? expression.trim() : "";
+		this.subpartitionMethod = normalizeMethod(subpartitionMethod);
+		this.subpartitionExpression = subpartitionExpression != null ? subpartitionExpression.trim() : null;
+		this.subpartitionCount = subpartitionMethod != null ? Math.max(1, subpartitionCount) : 0;
+	}
+
+	private static String normalizeMethod(String method)
+	{
+		return method != null ? method.trim().replaceAll("\\s+", " ").toUpperCase() : null;
+	}
+
+	// the server and SHOW CREATE TABLE differ in quoting and spacing of the same expression
+	private static String normalizeExpression(String expression)
+	{
+		return expression != null ? expression.replace("`", "").replaceAll("\\s+", "").toLowerCase() : null;
+	}
+
+	public void addPartition(String name, String description)
+	{
+		partitions.add(new Partition(name, description));
+	}
+
+	public String getTableName()
+	{
+		return tableName;
+	}
+
+	@Override
+	public String getName()
+	{
+		return tableName;
+	}
+
+	public String getMethod()
+	{
+		return method;
+	}
+
+	public String getExpression()
+	{
+		return expression;
+	}
+
+	public String getSubpartitionMethod()
+	{
+		return subpartitionMethod;
+	}
+
+	public String getSubpartitionExpression()
+	{
+		return subpartitionExpression;
+	}
+
+	public int getSubpartitionCount()
+	{
+		return subpartitionCount;
+	}
+
+	public List<Partition> getPartitions()
+	{
+		return partitions;
+	}
+
+	public boolean isHashed()
+	{
+		return method.endsWith("HASH") || method.endsWith("KEY");
+	}
+
+	public boolean isRange()
+	{
+		return method.startsWith("RANGE");
+	}
+
+	public boolean isColumns()
+	{
+		return method.endsWith("COLUMNS");
+	}
+
+	// equal method and expressions, so the partitions can be changed without partitioning the table again
+	public boolean isSameScheme(PartitionInfo other)
+	{
+		return other != null
+			&& this.method.equals(other.method)
+			&& Objects.equals(normalizeExpression(this.expression), normalizeExpression(other.expression))
+			&& Objects.equals(this.subpartitionMethod, other.subpartitionMethod)
+			&& Objects.equals(normalizeExpression(this.subpartitionExpression),
+				normalizeExpression(other.subpartitionExpression))
+			&& this.subpartitionCount == other.subpartitionCount;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int hash = 3;
+		hash = 83 * hash + Objects.hashCode(this.tableName.toLowerCase());
+		hash = 83 * hash + Objects.hashCode(this.method);
+		hash = 83 * hash + Objects.hashCode(normalizeExpression(this.expression));
+		hash = 83 * hash + this.partitions.size();
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (obj == null)
+		{
+			return false;
+		}
+		if (getClass() != obj.getClass())
+		{
+			return false;
+		}
+		final PartitionInfo other = (PartitionInfo)obj;
+		if (!this.tableName.equalsIgnoreCase(other.tableName))
+		{
+			return false;
+		}
+		if (!isSameScheme(other))
+		{
+			return false;
+		}
+		// hashed partitions are generated as p0, p1, ..., only their number matters
+		if (isHashed())
+		{
+			return this.partitions.size() == other.partitions.size();
+		}
+		return this.partitions.equals(other.partitions);
+	}
+
+	public static class Partition implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final String name;
+		private final String description;
+
+		// description is the VALUES LESS THAN or VALUES IN list without parentheses, null for hashed partitions
+		public Partition(String name, String description)
+		{
+			this.name = name;
+			this.description = description != null ? description.trim() : null;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public String getDescription()
+		{
+			return description;
+		}
+
+		private String getNormalizedDescription()
+		{
+			return description != null ? description.replaceAll("\\s*,\\s*", ",").toLowerCase() : null;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			int hash = 5;
+			hash = 41 * hash + Objects.hashCode(this.name.toLowerCase());
+			hash = 41 * hash + Objects.hashCode(getNormalizedDescription());
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (obj == null)
+			{
+				return false;
+			}
+			if (getClass() != obj.getClass())
+			{
+				return false;
+			}
+			final Partition other = (Partition)obj;
+			if (!this.name.equalsIgnoreCase(other.name))
+			{
+				return false;
+			}
+			return Objects.equals(getNormalizedDescription(), other.getNormalizedDescription());
+		}
+	}
+}
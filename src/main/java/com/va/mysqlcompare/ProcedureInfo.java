@@ -15,14 +15,17 @@
  */
 package com.va.mysqlcompare;
 
+import java.io.Serializable;
 import java.util.Objects;
 
-public class ProcedureInfo implements NamedObject
+public class ProcedureInfo implements NamedObject, Serializable
 {
+	private static final long serialVersionUID = 1L;
+
 	private final String name;
 	private final String type;
 	private final String createStatement;
-	private String cleanCreateStatement = null;
+	private transient String cleanCreateStatement = null;
 
 	public ProcedureInfo(String name, String type, String createStatement)
 	{
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class QueryThrottle
+{
+	private static final Logger LOG = LoggerFactory.getLogger(QueryThrottle.class);
+
+	static final int WARMUP_QUERIES = 10;
+	static final double SLOW_FACTOR = 2.0;
+	static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(2);
+	private static final double SMOOTHING = 0.2;
+
+	private final String serverName;
+	private final Semaphore concurrency;
+	private final long intervalNanos;
+	private long nextSlotNanos = 0;
+	private long backoffNanos = 0;
+	private double averageNanos = 0;
+	private double baselineNanos = 0;
+	private int samples = 0;
+
+	public QueryThrottle(ConnectionInfo serverInfo)
+	{
+		this(serverInfo.toString(), serverInfo.getMaxQueriesPerSecond(), serverInfo.getMaxConcurrentQueries());
+	}
+
+	QueryThrottle(String serverName, int maxQueriesPerSecond, int maxConcurrentQueries)
+	{
+		this.serverName = serverName;
+		this.intervalNanos = maxQueriesPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxQueriesPerSecond : 0;
+		this.concurrency = maxConcurrentQueries > 0 ? new Semaphore(maxConcurrentQueries, true) : null;
+	}
+
+	public void acquire(int queries) throws SQLException
+	{
+		boolean acquired = false;
+		try
+		{
+			if (concurrency != null)
+			{
+				concurrency.acquire();
+				acquired = true;
+			}
+
+			long delay = reserve(queries);
+			if (delay > 0)
+				TimeUnit.NANOSECONDS.sleep(delay);
+		}
+		catch (InterruptedException e)
+		{
+			if (acquired)
+				concurrency.release();
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for the query throttle", "70100", e);
+		}
+	}
+
+	public void release(int queries, long latencyNanos)
+	{
+		if (concurrency != null)
+			concurrency.release();
+
+		observe(latencyNanos / Math.max(1, queries));
+	}
+
+	public void abort()
+	{
+		// the statement was not executed, so there is no latency to learn from
+		if (concurrency != null)
+			concurrency.release();
+	}
+
+	synchronized long getBackoffNanos()
+	{
+		return backoffNanos;
+	}
+
+	private synchronized long reserve(int queries)
+	{
+		// a batch takes as many slots as it contains queries, the backoff spaces the statements themselves
+		long now = System.nanoTime();
+		long slot = Math.max(now, nextSlotNanos);
+		nextSlotNanos = slot + Math.max(intervalNanos * queries, backoffNanos);
+		return slot - now;
+	}
+
+	synchronized void observe(long latencyNanos)
+	{
+		averageNanos = samples == 0 ? latencyNanos : averageNanos + SMOOTHING * (latencyNanos - averageNanos);
+		samples++;
+
+		if (samples < WARMUP_QUERIES)
+			return;
+		if (samples == WARMUP_QUERIES || averageNanos < baselineNanos)
+		{
+			baselineNanos = averageNanos;
+			return;
+		}
+
+		if (averageNanos > baselineNanos * SLOW_FACTOR)
+		{
+			long backoff = Math.min(MAX_BACKOFF_NANOS, Math.max(backoffNanos * 2, (long)baselineNanos));
+			if (backoff != backoffNanos)
+			{
+				LOG.info("Queries to {} slowed down to {} ms, pausing {} ms between statements", serverName,
+					Math.round(averageNanos / 1000000), TimeUnit.NANOSECONDS.toMillis(backoff));
+			}
+			backoffNanos = backoff;
+		}
+		else if (backoffNanos > 0)
+		{
+			backoffNanos = backoffNanos / 2 < baselineNanos ? 0 : backoffNanos / 2;
+			if (backoffNanos == 0)
+				LOG.info("Queries to {} are back to normal", serverName);
+		}
+	}
+}
@@ -20,17 +20,26 @@ import com.va.lcs.LCS;
 import com.va.lcs.TokenList;
 import com.va.mysqlcompare.CompareResult.Diff;
 import com.va.mysqlcompare.CompareResult.FieldDiff;
+import com.va.mysqlcompare.CompareResult.ForeignKeyDiff;
 import com.va.mysqlcompare.CompareResult.KeyDiff;
+import com.va.mysqlcompare.CompareResult.PartitionDiff;
 import com.va.mysqlcompare.CompareResult.ProcedureDiff;
 import com.va.mysqlcompare.CompareResult.TableDiff;
+import com.va.mysqlcompare.CompareResult.TriggerDiff;
 import com.va.mysqlcompare.CompareResult.ViewDiff;
 import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.swing.DefaultListModel;
 import javax.swing.ListModel;
+import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 import javax.swing.text.AttributeSet;
 import javax.swing.text.BadLocationException;
@@ -48,6 +57,7 @@ public class ResultTab extends javax.swing.JPanel
 {
 	private static final long serialVersionUID = 1L;
 	private static final Logger LOG = LoggerFactory.getLogger(ResultTab.class);
+	private static final int DETAIL_CHUNK_SIZE = 20;
 
 	private final ComparisonTab comparisonTab;
 	private final ConnectionsManager conManager;
@@ -56,14 +66,33 @@ public class ResultTab extends javax.swing.JPanel
 	private int backupSliderPosition = 0;
 	private CompareResult result;
 	private DDERenderer previewRenderer;
+	private final LinkedList<TableDiff> pendingTables = new LinkedList<>();
+	private int loadGeneration = 0;
+	private Compare detailCompare;
+	private Thread detailLoader;
+	private final SchemaSource sourceB;
+	private volatile Compare watchCompare;
 
 	public ResultTab(ComparisonTab comparisonTab, ConnectionsManager conManager, String databaseA,
 		String databaseB)
+	{
+		this(comparisonTab, conManager, databaseA, databaseB, null);
+	}
+
+	public ResultTab(ComparisonTab comparisonTab, ConnectionsManager conManager, String databaseA,
+		SchemaSource sourceB)
+	{
+		this(comparisonTab, conManager, databaseA, sourceB.getName(), sourceB);
+	}
+
+	private ResultTab(ComparisonTab comparisonTab, ConnectionsManager conManager, String databaseA,
+		String databaseB, SchemaSource sourceB)
 	{
 		this.comparisonTab = comparisonTab;
 		this.conManager = conManager;
 		this.databaseA = databaseA;
 		this.databaseB = databaseB;
+		this.sourceB = sourceB;
 
 		initComponents();
 		init();
@@ -124,6 +153,16 @@ public class ResultTab extends javax.swing.JPanel
 	private void load()
 	{
 		final BlockDialog block = new BlockDialog(comparisonTab.getMainFrame());
+		final Compare compare = new Compare(conManager);
+		// both readers take part in a two phase or lazy compare, so both servers have to be configured for it
+		ConnectionInfo.CompareMode mode = conManager.getServerA().getCompareMode();
+		if (mode != conManager.getServerB().getCompareMode())
+			mode = ConnectionInfo.DEFAULT_COMPARE_MODE;
+		compare.setTwoPhase(mode == ConnectionInfo.CompareMode.TWO_PHASE);
+		compare.setLazy(mode == ConnectionInfo.CompareMode.LAZY);
+		compare.setCache(new MetadataCache(new File(Main.getConfigStorePath(), "cache")));
+		compare.setSourceB(sourceB);
+		block.setCancelAction(compare::cancel);
 
 		final SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>()
 		{
@@ -131,29 +170,41 @@ public class ResultTab extends javax.swing.JPanel
 			protected Void doInBackground() throws Exception
 			{
 				block.showAsync();
+				cancelDetailLoading();
 
-				Compare compare = new Compare(conManager);
 				UserInteraction interactor = new SwingUserInteraction(comparisonTab);
+				boolean loadingDetails = false;
 
 				try
 				{
+					// objects ignored on either server are left out of the whole compare
+					ObjectFilter filter = ObjectFilter.parse(conManager.getServerA().getObjectFilter());
+					filter.addAll(ObjectFilter.parse(conManager.getServerB().getObjectFilter()));
+					compare.setFilter(filter);
+
 					conManager.connect(interactor);
 
 					setResult(compare.doCompare(databaseA, databaseB));
+					loadingDetails = startDetailLoading(compare, interactor);
+					startWatching(compare);
 				}
 				catch (Exception e)
 				{
-					LOG.error("Could not compare tables in " + databaseA + " and " + databaseB, e);
-					interactor.showErrorMessage("Could not compare tables in " + databaseA + " and " + databaseB, e);
+					if (compare.isCancelled())
+					{
+						LOG.info("Compare of " + databaseA + " and " + databaseB + " cancelled");
+					}
+					else
+					{
+						LOG.error("Could not compare tables in " + databaseA + " and " + databaseB, e);
+						interactor.showErrorMessage("Could not compare tables in " + databaseA + " and " + databaseB, e);
+					}
 				}
 				finally
 				{
-					try
-					{
-						conManager.close();
-					}
-					catch (SQLException e)
+					if (!loadingDetails)
 					{
+						closeCompare(compare);
 					}
 					block.setVisible(false);
 				}
@@ -165,6 +216,221 @@ public class ResultTab extends javax.swing.JPanel
 		worker.execute();
 	}
 
+	private boolean startDetailLoading(Compare compare, UserInteraction interactor)
+	{
+		final int generation;
+		final Thread loader;
+		synchronized (pendingTables)
+		{
+			// a running loader of a previous compare stops at its next chunk
+			generation = ++loadGeneration;
+			pendingTables.clear();
+			for (Diff diff : result.getDiffs())
+			{
+				if (diff.getType() == Diff.Type.TABLE && diff.getMode() == Diff.Mode.PENDING)
+					pendingTables.add((TableDiff)diff);
+			}
+			if (pendingTables.isEmpty())
+				return false;
+			detailCompare = compare;
+			loader = new Thread(() -> loadDetails(compare, interactor, generation));
+			detailLoader = loader;
+		}
+
+		loader.start();
+		return true;
+	}
+
+	private void loadDetails(Compare compare, UserInteraction interactor, int generation)
+	{
+		try
+		{
+			while (true)
+			{
+				List<TableDiff> chunk = new ArrayList<>();
+				synchronized (pendingTables)
+				{
+					while (generation == loadGeneration && !pendingTables.isEmpty() && chunk.size() < DETAIL_CHUNK_SIZE)
+					{
+						chunk.add(pendingTables.removeFirst());
+					}
+				}
+				if (chunk.isEmpty())
+					break;
+
+				Map<TableDiff, List<Diff>> details = compare.loadTableDetails(chunk);
+				SwingUtilities.invokeLater(() -> applyDetails(details));
+			}
+		}
+		catch (Exception e)
+		{
+			if (compare.isCancelled())
+			{
+				LOG.info("Loading table details in " + databaseA + " and " + databaseB + " cancelled");
+			}
+			else
+			{
+				LOG.error("Could not load table details in " + databaseA + " and " + databaseB, e);
+				interactor.showErrorMessage("Could not load table details in " + databaseA + " and " + databaseB, e);
+			}
+		}
+		finally
+		{
+			synchronized (pendingTables)
+			{
+				if (detailCompare == compare)
+					detailCompare = null;
+			}
+			closeCompare(compare);
+		}
+	}
+
+	private void cancelDetailLoading()
+	{
+		Compare compare;
+		Thread loader;
+		synchronized (pendingTables)
+		{
+			loadGeneration++;
+			pendingTables.clear();
+			compare = detailCompare;
+			detailCompare = null;
+			loader = detailLoader;
+			detailLoader = null;
+		}
+
+		// the running chunk of an old result is not needed anymore
+		if (compare != null)
+			compare.cancel();
+
+		// the loader streams over the connections the next compare reconnects, and closes them when it ends
+		if (loader != null)
+		{
+			try
+			{
+				loader.join();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void startWatching(Compare compare)
+	{
+		if (!(sourceB instanceof SqlDirectorySource))
+			return;
+
+		// a refresh replaces the compare, the watcher keeps running
+		watchCompare = compare;
+		try
+		{
+			((SqlDirectorySource)sourceB).watch(this::sourceChanged);
+		}
+		catch (IOException e)
+		{
+			LOG.warn("Cannot watch " + ((SqlDirectorySource)sourceB).getDirectory() + " for changes", e);
+		}
+	}
+
+	private void sourceChanged()
+	{
+		Compare compare = watchCompare;
+		if (compare == null)
+			return;
+
+		try
+		{
+			CompareResult changed = compare.recompare();
+			SwingUtilities.invokeLater(() -> setResult(changed));
+		}
+		catch (Exception e)
+		{
+			LOG.error("Could not compare " + databaseA + " with the changed files of " + databaseB, e);
+		}
+	}
+
+	@Override
+	public void removeNotify()
+	{
+		super.removeNotify();
+
+		watchCompare = null;
+		if (sourceB instanceof SqlDirectorySource)
+		{
+			try
+			{
+				((SqlDirectorySource)sourceB).close();
+			}
+			catch (IOException e)
+			{
+				LOG.warn(null, e);
+			}
+		}
+	}
+
+	private void closeCompare(Compare compare)
+	{
+		try
+		{
+			compare.close();
+			conManager.close();
+		}
+		catch (SQLException e)
+		{
+		}
+	}
+
+	private void applyDetails(Map<TableDiff, List<Diff>> details)
+	{
+		DefaultListModel<ListEntry> listModel = (DefaultListModel<ListEntry>)changeList.getModel();
+
+		for (Map.Entry<TableDiff, List<Diff>> entry : details.entrySet())
+		{
+			// details of a replaced result are dropped
+			if (!result.replaceDiff(entry.getKey(), entry.getValue()))
+				continue;
+
+			int index = 0;
+			while (index < listModel.getSize() && listModel.getElementAt(index).getDiff() != entry.getKey())
+			{
+				index++;
+			}
+			if (index == listModel.getSize())
+				continue;
+
+			boolean selected = changeList.isSelectedIndex(index);
+			listModel.remove(index);
+
+			DefaultListModel<ListEntry> entries = new DefaultListModel<>();
+			entry.getValue().forEach((diff) -> addDiff(entries, diff));
+			for (int i = 0; i < entries.getSize(); ++i)
+			{
+				listModel.add(index + i, entries.getElementAt(i));
+				if (selected)
+					changeList.addSelectionInterval(index + i, index + i);
+			}
+		}
+
+		if (listModel.isEmpty())
+		{
+			listModel.addElement(new ListEntry(null, "The databases are equal"));
+		}
+	}
+
+	private void prioritizeSelectedTables()
+	{
+		synchronized (pendingTables)
+		{
+			for (ListEntry entry : changeList.getSelectedValuesList())
+			{
+				if (entry.getDiff() != null && pendingTables.remove(entry.getDiff()))
+					pendingTables.addFirst((TableDiff)entry.getDiff());
+			}
+		}
+	}
+
 	private void loadList()
 	{
 		DefaultListModel<ListEntry> listModel = new DefaultListModel<>();
@@ -178,23 +444,7 @@ public class ResultTab extends javax.swing.JPanel
 				hasDiffs = true;
 			}
 
-			switch (diff.getType())
-			{
-				case TABLE:
-					addTableDiff(listModel, (TableDiff)diff);
-					break;
-				case VIEW:
-					addViewDiff(listModel, (ViewDiff)diff);
-					break;
-				case FIELD:
-					addFieldDiff(listModel, (FieldDiff)diff);
-					break;
-				case KEY:
-					addKeyDiff(listModel, (KeyDiff)diff);
-					break;
-				case PROCEDURE:
-					addProcedureDiff(listModel, (ProcedureDiff)diff);
-			}
+			addDiff(listModel, diff);
 		}
 
 		if (!hasDiffs)
@@ -206,6 +456,36 @@ public class ResultTab extends javax.swing.JPanel
 		selectItems();
 	}
 
+	private void addDiff(DefaultListModel<ListEntry> listModel, Diff diff)
+	{
+		switch (diff.getType())
+		{
+			case TABLE:
+				addTableDiff(listModel, (TableDiff)diff);
+				break;
+			case VIEW:
+				addViewDiff(listModel, (ViewDiff)diff);
+				break;
+			case FIELD:
+				addFieldDiff(listModel, (FieldDiff)diff);
+				break;
+			case KEY:
+				addKeyDiff(listModel, (KeyDiff)diff);
+				break;
+			case PROCEDURE:
+				addProcedureDiff(listModel, (ProcedureDiff)diff);
+				break;
+			case TRIGGER:
+				addTriggerDiff(listModel, (TriggerDiff)diff);
+				break;
+			case FOREIGN_KEY:
+				addForeignKeyDiff(listModel, (ForeignKeyDiff)diff);
+				break;
+			case PARTITION:
+				addPartitionDiff(listModel, (PartitionDiff)diff);
+		}
+	}
+
 	private void addTableDiff(DefaultListModel<ListEntry> listModel, TableDiff tableDiff)
 	{
 		switch (tableDiff.getMode())
@@ -219,6 +499,9 @@ public class ResultTab extends javax.swing.JPanel
 			case DIFFERENT:
 				listModel.addElement(new ListEntry(tableDiff, "TABLE `" + tableDiff.getTableInfoB().getName() + "` differs in A and B"));
 				break;
+			case PENDING:
+				listModel.addElement(new ListEntry(tableDiff, "TABLE `" + tableDiff.getTableInfoB().getName() + "` differs in A and B, loading details ..."));
+				break;
 		}
 	}
 
@@ -297,6 +580,54 @@ public class ResultTab extends javax.swing.JPanel
 		}
 	}
 
+	private void addTriggerDiff(DefaultListModel<ListEntry> listModel, TriggerDiff triggerDiff)
+	{
+		switch (triggerDiff.getMode())
+		{
+			case LEFT_ONLY:
+				listModel.addElement(new ListEntry(triggerDiff, "TRIG  `" + triggerDiff.getTriggerInfoA().getTableName() + "`.`" + triggerDiff.getTriggerInfoA().getName() + "` only exists in A"));
+				break;
+			case RIGHT_ONLY:
+				listModel.addElement(new ListEntry(triggerDiff, "TRIG  `" + triggerDiff.getTriggerInfoB().getTableName() + "`.`" + triggerDiff.getTriggerInfoB().getName() + "` only exists in B"));
+				break;
+			case DIFFERENT:
+				listModel.addElement(new ListEntry(triggerDiff, "TRIG  `" + triggerDiff.getTriggerInfoA().getTableName() + "`.`" + triggerDiff.getTriggerInfoA().getName() + "` differs in A and B"));
+				break;
+		}
+	}
+
+	private void addForeignKeyDiff(DefaultListModel<ListEntry> listModel, ForeignKeyDiff foreignKeyDiff)
+	{
+		switch (foreignKeyDiff.getMode())
+		{
+			case LEFT_ONLY:
+				listModel.addElement(new ListEntry(foreignKeyDiff, "FKEY  `" + foreignKeyDiff.getForeignKeyInfoA().getTableName() + "`.`" + foreignKeyDiff.getForeignKeyInfoA().getName() + "` only exists in A"));
+				break;
+			case RIGHT_ONLY:
+				listModel.addElement(new ListEntry(foreignKeyDiff, "FKEY  `" + foreignKeyDiff.getForeignKeyInfoB().getTableName() + "`.`" + foreignKeyDiff.getForeignKeyInfoB().getName() + "` only exists in B"));
+				break;
+			case DIFFERENT:
+				listModel.addElement(new ListEntry(foreignKeyDiff, "FKEY  `" + foreignKeyDiff.getForeignKeyInfoA().getTableName() + "`.`" + foreignKeyDiff.getForeignKeyInfoA().getName() + "` differs in A and B"));
+				break;
+		}
+	}
+
+	private void addPartitionDiff(DefaultListModel<ListEntry> listModel, PartitionDiff partitionDiff)
+	{
+		switch (partitionDiff.getMode())
+		{
+			case LEFT_ONLY:
+				listModel.addElement(new ListEntry(partitionDiff, "PART  `" + partitionDiff.getPartitionInfoA().getTableName() + "` is only partitioned in A"));
+				break;
+			case RIGHT_ONLY:
+				listModel.addElement(new ListEntry(partitionDiff, "PART  `" + partitionDiff.getPartitionInfoB().getTableName() + "` is only partitioned in B"));
+				break;
+			case DIFFERENT:
+				listModel.addElement(new ListEntry(partitionDiff, "PART  `" + partitionDiff.getPartitionInfoA().getTableName() + "` partitions differ in A and B"));
+				break;
+		}
+	}
+
 	public ConnectionsManager getConnectionsManager()
 	{
 		return conManager;
@@ -723,6 +1054,7 @@ public class ResultTab extends javax.swing.JPanel
 			return;
 		}
 
+		prioritizeSelectedTables();
 		rerenderDDE();
     }//GEN-LAST:event_changeListValueChanged
 
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Set;
+
+public class SchemaCatalog
+{
+	public enum ObjectType
+	{
+		TABLE,
+		VIEW,
+		FUNCTION,
+		PROCEDURE,
+	}
+
+	private final String databaseName;
+	private final NamedObjectList<Entry> tables;
+	private final NamedObjectList<Entry> views;
+	private final NamedObjectList<Entry> routines;
+
+	public SchemaCatalog(String databaseName)
+	{
+		this.databaseName = databaseName;
+		this.tables = new NamedObjectList<>();
+		this.views = new NamedObjectList<>();
+		this.routines = new NamedObjectList<>();
+	}
+
+	void add(Entry entry)
+	{
+		switch (entry.getType())
+		{
+			case TABLE:
+				tables.add(entry);
+				break;
+			case VIEW:
+				views.add(entry);
+				break;
+			case FUNCTION:
+			case PROCEDURE:
+				routines.add(entry);
+				break;
+		}
+	}
+
+	SchemaCatalog filterTables(Set<String> tableNames)
+	{
+		SchemaCatalog output = new SchemaCatalog(databaseName);
+		for (Entry entry : tables)
+		{
+			if (tableNames.contains(entry.getName().toLowerCase()))
+				output.add(entry);
+		}
+		views.forEach(output::add);
+		routines.forEach(output::add);
+		return output;
+	}
+
+	SchemaCatalog filter(ObjectFilter filter)
+	{
+		SchemaCatalog output = new SchemaCatalog(databaseName);
+		for (NamedObjectList<Entry> entries : Arrays.asList(tables, views, routines))
+		{
+			for (Entry entry : entries)
+			{
+				if (filter.accepts(entry.getType(), entry.getName()))
+					output.add(entry);
+			}
+		}
+		return output;
+	}
+
+	public String getDatabaseName()
+	{
+		return databaseName;
+	}
+
+	NamedObjectList<Entry> getTables()
+	{
+		return tables;
+	}
+
+	NamedObjectList<Entry> getViews()
+	{
+		return views;
+	}
+
+	NamedObjectList<Entry> getRoutines()
+	{
+		return routines;
+	}
+
+	public static class Entry implements NamedObject
+	{
+		private final String name;
+		private final ObjectType type;
+		private final String engine;
+		private final String collation;
+		private final Timestamp createTime;
+		private final Timestamp updateTime;
+		private final Long tableRows;
+		private final Long dataLength;
+
+		public Entry(String name, ObjectType type, String engine, String collation, Timestamp createTime,
+			Timestamp updateTime, Long tableRows, Long dataLength)
+		{
+			this.name = name;
+			this.type = type;
+			this.engine = engine;
+			this.collation = collation;
+			this.createTime = createTime;
+			this.updateTime = updateTime;
+			this.tableRows = tableRows;
+			this.dataLength = dataLength;
+		}
+
+		@Override
+		public String getName()
+		{
+			return name;
+		}
+
+		public ObjectType getType()
+		{
+			return type;
+		}
+
+		public String getEngine()
+		{
+			return engine;
+		}
+
+		public String getCollation()
+		{
+			return collation;
+		}
+
+		TableInfo toTableInfo()
+		{
+			// without the create statement, enough to report a table that is known to be equal
+			String charset = collation != null ? collation.replaceAll("_.*", "") : null;
+			return new TableInfo(name, (String)null, engine, charset, collation);
+		}
+
+		public Timestamp getCreateTime()
+		{
+			return createTime;
+		}
+
+		public Timestamp getUpdateTime()
+		{
+			return updateTime;
+		}
+
+		public Long getTableRows()
+		{
+			return tableRows;
+		}
+
+		public Long getDataLength()
+		{
+			return dataLength;
+		}
+	}
+}
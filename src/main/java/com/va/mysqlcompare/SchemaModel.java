@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+public class SchemaModel
+{
+	private final SchemaCatalog catalog;
+	private final NamedObjectList<TableInfo> tables;
+	private final HashMap<String, NamedObjectList<FieldInfo>> tableFields;
+	private final HashMap<String, HashMap<String, KeyInfo>> tableKeys;
+	private final NamedObjectList<ViewInfo> views;
+	private final NamedObjectList<ProcedureInfo> procedures;
+	private final NamedObjectList<TriggerInfo> triggers;
+	private final NamedObjectList<ForeignKeyInfo> foreignKeys;
+	private final NamedObjectList<PartitionInfo> partitions;
+	private final Set<String> summaryTables;
+
+	SchemaModel(SchemaCatalog catalog, NamedObjectList<TableInfo> tables,
+		HashMap<String, NamedObjectList<FieldInfo>> tableFields, HashMap<String, HashMap<String, KeyInfo>> tableKeys,
+		NamedObjectList<ViewInfo> views, NamedObjectList<ProcedureInfo> procedures)
+	{
+		this(catalog, tables, tableFields, tableKeys, views, procedures, new NamedObjectList<>(),
+			new NamedObjectList<>(), new NamedObjectList<>(), Collections.emptySet());
+	}
+
+	SchemaModel(SchemaCatalog catalog, NamedObjectList<TableInfo> tables,
+		HashMap<String, NamedObjectList<FieldInfo>> tableFields, HashMap<String, HashMap<String, KeyInfo>> tableKeys,
+		NamedObjectList<ViewInfo> views, NamedObjectList<ProcedureInfo> procedures,
+		NamedObjectList<TriggerInfo> triggers, NamedObjectList<ForeignKeyInfo> foreignKeys,
+		NamedObjectList<PartitionInfo> partitions)
+	{
+		this(catalog, tables, tableFields, tableKeys, views, procedures, triggers, foreignKeys, partitions,
+			Collections.emptySet());
+	}
+
+	SchemaModel(SchemaCatalog catalog, NamedObjectList<TableInfo> tables,
+		HashMap<String, NamedObjectList<FieldInfo>> tableFields, HashMap<String, HashMap<String, KeyInfo>> tableKeys,
+		NamedObjectList<ViewInfo> views, NamedObjectList<ProcedureInfo> procedures,
+		NamedObjectList<TriggerInfo> triggers, NamedObjectList<ForeignKeyInfo> foreignKeys,
+		NamedObjectList<PartitionInfo> partitions, Set<String> summaryTables)
+	{
+		this.catalog = catalog;
+		this.tables = tables;
+		this.tableFields = tableFields;
+		this.tableKeys = tableKeys;
+		this.views = views;
+		this.procedures = procedures;
+		this.triggers = triggers;
+		this.foreignKeys = foreignKeys;
+		this.partitions = partitions;
+		this.summaryTables = summaryTables;
+	}
+
+	// the servers filter in their queries, a schema from a file is filtered after reading it
+	SchemaModel filter(ObjectFilter filter)
+	{
+		if (filter.isEmpty())
+			return this;
+
+		NamedObjectList<TableInfo> filteredTables = new NamedObjectList<>();
+		HashMap<String, NamedObjectList<FieldInfo>> filteredFields = new HashMap<>();
+		HashMap<String, HashMap<String, KeyInfo>> filteredKeys = new HashMap<>();
+		Set<String> filteredSummaryTables = new HashSet<>();
+		for (TableInfo tableInfo : getTables())
+		{
+			if (!filter.accepts(SchemaCatalog.ObjectType.TABLE, tableInfo.getName()))
+				continue;
+
+			filteredTables.add(tableInfo);
+			filteredFields.put(tableInfo.getName().toLowerCase(), getFields(tableInfo.getName()));
+			filteredKeys.put(tableInfo.getName().toLowerCase(), getKeys(tableInfo.getName()));
+			if (!isDetailed(tableInfo.getName()))
+				filteredSummaryTables.add(tableInfo.getName().toLowerCase());
+		}
+
+		NamedObjectList<ViewInfo> filteredViews = new NamedObjectList<>();
+		for (ViewInfo viewInfo : getViews())
+		{
+			if (filter.accepts(SchemaCatalog.ObjectType.VIEW, viewInfo.getName()))
+				filteredViews.add(viewInfo);
+		}
+		NamedObjectList<ProcedureInfo> filteredProcedures = new NamedObjectList<>();
+		for (ProcedureInfo procedureInfo : getProcedures())
+		{
+			if (filter.accepts(SchemaCatalog.ObjectType.valueOf(procedureInfo.getType()), procedureInfo.getName()))
+				filteredProcedures.add(procedureInfo);
+		}
+
+		// triggers, foreign keys and partitions belong to their table
+		NamedObjectList<TriggerInfo> filteredTriggers = new NamedObjectList<>();
+		for (TriggerInfo triggerInfo : getTriggers())
+		{
+			if (filteredTables.contains(triggerInfo.getTableName()))
+				filteredTriggers.add(triggerInfo);
+		}
+		NamedObjectList<ForeignKeyInfo> filteredForeignKeys = new NamedObjectList<>();
+		for (ForeignKeyInfo foreignKeyInfo : getForeignKeys())
+		{
+			if (filteredTables.contains(foreignKeyInfo.getTableName()))
+				filteredForeignKeys.add(foreignKeyInfo);
+		}
+		NamedObjectList<PartitionInfo> filteredPartitions = new NamedObjectList<>();
+		for (PartitionInfo partitionInfo : getPartitions())
+		{
+			if (filteredTables.contains(partitionInfo.getTableName()))
+				filteredPartitions.add(partitionInfo);
+		}
+
+		return new SchemaModel(catalog.filter(filter), filteredTables, filteredFields, filteredKeys, filteredViews,
+			filteredProcedures, filteredTriggers, filteredForeignKeys, filteredPartitions, filteredSummaryTables);
+	}
+
+	public String getDatabaseName()
+	{
+		return catalog.getDatabaseName();
+	}
+
+	public SchemaCatalog getCatalog()
+	{
+		return catalog;
+	}
+
+	NamedObjectList<TableInfo> getTables()
+	{
+		return tables;
+	}
+
+	boolean isDetailed(String tableName)
+	{
+		return !summaryTables.contains(tableName.toLowerCase());
+	}
+
+	NamedObjectList<FieldInfo> getFields(String tableName)
+	{
+		NamedObjectList<FieldInfo> fields = tableFields.get(tableName.toLowerCase());
+		return fields != null ? fields : new NamedObjectList<>();
+	}
+
+	HashMap<String, KeyInfo> getKeys(String tableName)
+	{
+		HashMap<String, KeyInfo> keys = tableKeys.get(tableName.toLowerCase());
+		return keys != null ? keys : new HashMap<>();
+	}
+
+	NamedObjectList<ViewInfo> getViews()
+	{
+		return views;
+	}
+
+	NamedObjectList<ProcedureInfo> getProcedures()
+	{
+		return procedures;
+	}
+
+	NamedObjectList<TriggerInfo> getTriggers()
+	{
+		return triggers;
+	}
+
+	NamedObjectList<ForeignKeyInfo> getForeignKeys()
+	{
+		return foreignKeys;
+	}
+
+	// one entry per partitioned table, named like the table
+	NamedObjectList<PartitionInfo> getPartitions()
+	{
+		return partitions;
+	}
+}
@@ -0,0 +1,699 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// A schema written to a file, layout (all offsets absolute, integers little endian or varint):
+//   header:  magic, version, offset of the index, offset of the string table
+//   records: one per table (info, fields, keys), view, routine, trigger (since version 2) and foreign key
+//            (since version 3)
+//   index:   database name and per object its name and record offset
+//   strings: count, one offset per string, then length prefixed UTF-8 data
+// Strings are referenced by their number + 1, 0 stands for null. The file is mapped into memory and
+// only the index is read when it is opened, everything else is decoded on first access.
+public class SchemaSnapshot implements SchemaSource
+{
+	private static final byte[] MAGIC = "MYSQLCMP".getBytes(StandardCharsets.US_ASCII);
+	private static final int VERSION = 4;
+	private static final int HEADER_SIZE = MAGIC.length + 4 + 8 + 8;
+
+	private final File file;
+	private final MappedByteBuffer buffer;
+	private final int stringCount;
+	private final int stringOffsetsStart;
+	private final int stringDataStart;
+	private final String[] strings;
+	private final SchemaCatalog catalog;
+	private final List<TableRecord> tableRecords = new ArrayList<>();
+	private final Map<String, TableRecord> tableRecordsByName = new HashMap<>();
+	private final List<Integer> viewRecords = new ArrayList<>();
+	private final List<Integer> routineRecords = new ArrayList<>();
+	private final List<Integer> triggerRecords = new ArrayList<>();
+	private final List<Integer> foreignKeyRecords = new ArrayList<>();
+	private final List<Integer> partitionRecords = new ArrayList<>();
+	private SnapshotModel model;
+
+	private SchemaSnapshot(File file, MappedByteBuffer buffer) throws IOException
+	{
+		this.file = file;
+		this.buffer = buffer;
+
+		ByteBuffer header = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		byte[] magic = new byte[MAGIC.length];
+		header.get(magic);
+		if (!Arrays.equals(magic, MAGIC))
+			throw new IOException(file + " is not a schema snapshot");
+		int version = header.getInt();
+		if (version < 1 || version > VERSION)
+			throw new IOException("Unsupported schema snapshot version " + version + " in " + file);
+		int indexOffset = toOffset(header.getLong());
+		int stringsOffset = toOffset(header.getLong());
+
+		header.position(stringsOffset);
+		stringCount = header.getInt();
+		stringOffsetsStart = stringsOffset + 4;
+		stringDataStart = stringOffsetsStart + stringCount * 4;
+		strings = new String[stringCount];
+
+		Decoder index = new Decoder(indexOffset);
+		catalog = new SchemaCatalog(index.readString());
+		for (int i = index.readInt(); i > 0; --i)
+		{
+			String name = index.readString();
+			String engine = index.readString();
+			String collation = index.readString();
+			TableRecord record = new TableRecord(name, index.readInt());
+			tableRecords.add(record);
+			tableRecordsByName.put(name.toLowerCase(), record);
+			catalog.add(new SchemaCatalog.Entry(name, SchemaCatalog.ObjectType.TABLE, engine, collation, null, null,
+				null, null));
+		}
+		for (int i = index.readInt(); i > 0; --i)
+		{
+			catalog.add(new SchemaCatalog.Entry(index.readString(), SchemaCatalog.ObjectType.VIEW, null, null, null,
+				null, null, null));
+			viewRecords.add(index.readInt());
+		}
+		for (int i = index.readInt(); i > 0; --i)
+		{
+			String name = index.readString();
+			SchemaCatalog.ObjectType type = SchemaCatalog.ObjectType.valueOf(index.readString());
+			catalog.add(new SchemaCatalog.Entry(name, type, null, null, null, null, null, null));
+			routineRecords.add(index.readInt());
+		}
+		// snapshots of version 1 have no triggers
+		if (version >= 2)
+		{
+			for (int i = index.readInt(); i > 0; --i)
+			{
+				index.readString();
+				triggerRecords.add(index.readInt());
+			}
+		}
+		if (version >= 3)
+		{
+			for (int i = index.readInt(); i > 0; --i)
+			{
+				index.readString();
+				foreignKeyRecords.add(index.readInt());
+			}
+		}
+		if (version >= 4)
+		{
+			for (int i = index.readInt(); i > 0; --i)
+			{
+				index.readString();
+				partitionRecords.add(index.readInt());
+			}
+		}
+	}
+
+	public static SchemaSnapshot open(File file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Schema snapshot " + file + " is too large");
+
+			// the mapping stays valid after the channel is closed
+			return new SchemaSnapshot(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	public static boolean isSnapshot(File file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+			while (magic.hasRemaining() && channel.read(magic) != -1)
+			{
+			}
+			return !magic.hasRemaining() && Arrays.equals(magic.array(), MAGIC);
+		}
+	}
+
+	public static void write(SchemaModel schema, File file) throws IOException
+	{
+		Encoder strings = new Encoder();
+		HashMap<String, Integer> stringIds = new HashMap<>();
+		List<Integer> stringOffsets = new ArrayList<>();
+		Encoder records = new Encoder(strings, stringIds, stringOffsets);
+		Encoder index = new Encoder(strings, stringIds, stringOffsets);
+
+		index.writeString(schema.getDatabaseName());
+		index.writeInt(schema.getTables().size());
+		for (TableInfo tableInfo : schema.getTables())
+		{
+			index.writeString(tableInfo.getName());
+			index.writeString(tableInfo.getEngine());
+			index.writeString(tableInfo.getCollation());
+			index.writeInt(HEADER_SIZE + records.size());
+			writeTable(records, tableInfo, schema.getFields(tableInfo.getName()), schema.getKeys(tableInfo.getName()));
+		}
+		index.writeInt(schema.getViews().size());
+		for (ViewInfo viewInfo : schema.getViews())
+		{
+			index.writeString(viewInfo.getName());
+			index.writeInt(HEADER_SIZE + records.size());
+			records.writeString(viewInfo.getName());
+			records.writeString(viewInfo.getCreateStatement());
+		}
+		index.writeInt(schema.getProcedures().size());
+		for (ProcedureInfo procedureInfo : schema.getProcedures())
+		{
+			index.writeString(procedureInfo.getName());
+			index.writeString(procedureInfo.getType());
+			index.writeInt(HEADER_SIZE + records.size());
+			records.writeString(procedureInfo.getName());
+			records.writeString(procedureInfo.getType());
+			records.writeString(procedureInfo.getCreateStatement());
+		}
+		index.writeInt(schema.getTriggers().size());
+		for (TriggerInfo triggerInfo : schema.getTriggers())
+		{
+			index.writeString(triggerInfo.getName());
+			index.writeInt(HEADER_SIZE + records.size());
+			records.writeString(triggerInfo.getName());
+			records.writeString(triggerInfo.getTableName());
+			records.writeString(triggerInfo.getTiming());
+			records.writeString(triggerInfo.getEvent());
+			records.writeString(triggerInfo.getBody());
+		}
+		index.writeInt(schema.getForeignKeys().size());
+		for (ForeignKeyInfo foreignKeyInfo : schema.getForeignKeys())
+		{
+			index.writeString(foreignKeyInfo.getName());
+			index.writeInt(HEADER_SIZE + records.size());
+			records.writeString(foreignKeyInfo.getTableName());
+			records.writeString(foreignKeyInfo.getName());
+			records.writeString(foreignKeyInfo.getReferencedSchema());
+			records.writeString(foreignKeyInfo.getReferencedTable());
+			records.writeString(foreignKeyInfo.getUpdateRule());
+			records.writeString(foreignKeyInfo.getDeleteRule());
+			records.writeInt(foreignKeyInfo.getColumns().size());
+			for (int i = 0; i < foreignKeyInfo.getColumns().size(); ++i)
+			{
+				records.writeString(foreignKeyInfo.getColumns().get(i));
+				records.writeString(foreignKeyInfo.getReferencedColumns().get(i));
+			}
+		}
+		index.writeInt(schema.getPartitions().size());
+		for (PartitionInfo partitionInfo : schema.getPartitions())
+		{
+			index.writeString(partitionInfo.getTableName());
+			index.writeInt(HEADER_SIZE + records.size());
+			records.writeString(partitionInfo.getTableName());
+			records.writeString(partitionInfo.getMethod());
+			records.writeString(partitionInfo.getExpression());
+			records.writeString(partitionInfo.getSubpartitionMethod());
+			records.writeString(partitionInfo.getSubpartitionExpression());
+			records.writeInt(partitionInfo.getSubpartitionCount());
+			records.writeInt(partitionInfo.getPartitions().size());
+			for (PartitionInfo.Partition partition : partitionInfo.getPartitions())
+			{
+				records.writeString(partition.getName());
+				records.writeString(partition.getDescription());
+			}
+		}
+
+		long indexOffset = HEADER_SIZE + records.size();
+		long stringsOffset = indexOffset + index.size();
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.put(MAGIC).putInt(VERSION).putLong(indexOffset).putLong(stringsOffset).flip();
+		ByteBuffer offsets = ByteBuffer.allocate(4 + stringOffsets.size() * 4).order(ByteOrder.LITTLE_ENDIAN);
+		offsets.putInt(stringOffsets.size());
+		stringOffsets.forEach(offsets::putInt);
+		offsets.flip();
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+			StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			writeFully(channel, header);
+			writeFully(channel, records.toByteBuffer());
+			writeFully(channel, index.toByteBuffer());
+			writeFully(channel, offsets);
+			writeFully(channel, strings.toByteBuffer());
+		}
+	}
+
+	private static void writeTable(Encoder records, TableInfo tableInfo, NamedObjectList<FieldInfo> fields,
+		HashMap<String, KeyInfo> keys)
+	{
+		records.writeString(tableInfo.getName());
+		records.writeString(tableInfo.getCreateStatement());
+		records.writeString(tableInfo.getEngine());
+		records.writeString(tableInfo.getCharset());
+		records.writeString(tableInfo.getCollation());
+
+		records.writeInt(fields.size());
+		for (FieldInfo fieldInfo : fields)
+		{
+			records.writeString(fieldInfo.getName());
+			records.writeString(fieldInfo.getPreviousFieldName());
+			// FieldInfo keeps only the base type and the length of the column type
+			records.writeString(fieldInfo.getType() +
+				(fieldInfo.getLength() != null ? "(" + fieldInfo.getLength() + ")" : ""));
+			records.writeString(fieldInfo.getCollation());
+			records.writeString(fieldInfo.getDefault());
+			records.writeInt((fieldInfo.isNull() ? 1 : 0) | (fieldInfo.isAutoIncrement() ? 2 : 0) |
+				(fieldInfo.isGenerationUniqueKey() ? 4 : 0));
+			records.writeInt(fieldInfo.getGenerationType().ordinal());
+			records.writeString(fieldInfo.getGenerationExpression());
+		}
+
+		records.writeInt(keys.size());
+		for (KeyInfo keyInfo : keys.values())
+		{
+			records.writeString(keyInfo.getName());
+			records.writeInt(keyInfo.isUnique() ? 1 : 0);
+			records.writeInt(keyInfo.getFields().size());
+			for (KeyInfo.KeyField keyField : keyInfo.getFields())
+			{
+				records.writeString(keyField.getName());
+				// the length is -1 without a prefix
+				records.writeInt(keyField.getLength() + 1);
+			}
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer data) throws IOException
+	{
+		while (data.hasRemaining())
+		{
+			channel.write(data);
+		}
+	}
+
+	private static int toOffset(long offset) throws IOException
+	{
+		if (offset < HEADER_SIZE || offset > Integer.MAX_VALUE)
+			throw new IOException("Invalid offset in schema snapshot");
+		return (int)offset;
+	}
+
+	public File getFile()
+	{
+		return file;
+	}
+
+	@Override
+	public String getName()
+	{
+		return catalog.getDatabaseName() + " (" + file.getName() + ")";
+	}
+
+	@Override
+	public synchronized SchemaModel readSchema()
+	{
+		if (model == null)
+			model = new SnapshotModel();
+		return model;
+	}
+
+	public SchemaCatalog getCatalog()
+	{
+		return catalog;
+	}
+
+	private String getString(int reference)
+	{
+		if (reference == 0)
+			return null;
+
+		// concurrent decoding of the same string is harmless, both results are equal
+		final int id = reference - 1;
+		String value = strings[id];
+		if (value == null)
+		{
+			ByteBuffer data = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+			int offset = data.getInt(stringOffsetsStart + id * 4);
+			Decoder decoder = new Decoder(stringDataStart + offset);
+			byte[] bytes = new byte[decoder.readInt()];
+			decoder.data.get(bytes);
+			value = new String(bytes, StandardCharsets.UTF_8);
+			strings[id] = value;
+		}
+		return value;
+	}
+
+	private TableData readTable(int offset)
+	{
+		Decoder decoder = new Decoder(offset);
+		final String tableName = decoder.readString();
+		final int createStatement = decoder.readInt();
+		TableInfo tableInfo = new TableInfo(tableName, () -> getString(createStatement), decoder.readString(),
+			decoder.readString(), decoder.readString());
+
+		try
+		{
+			NamedObjectList<FieldInfo> fields = new NamedObjectList<>();
+			for (int i = decoder.readInt(); i > 0; --i)
+			{
+				String name = decoder.readString();
+				String previousFieldName = decoder.readString();
+				String columnType = decoder.readString();
+				String collation = decoder.readString();
+				String defaultValue = decoder.readString();
+				int flags = decoder.readInt();
+				FieldInfo.GenerationType generationType = FieldInfo.GenerationType.values()[decoder.readInt()];
+				fields.add(new FieldInfo(tableName, name, previousFieldName, columnType, collation, (flags & 1) != 0,
+					defaultValue, (flags & 2) != 0, generationType, decoder.readString(), (flags & 4) != 0));
+			}
+
+			HashMap<String, KeyInfo> keys = new HashMap<>();
+			for (int i = decoder.readInt(); i > 0; --i)
+			{
+				KeyInfo keyInfo = new KeyInfo(tableName, decoder.readString(), decoder.readInt() != 0);
+				for (int j = decoder.readInt(); j > 0; --j)
+				{
+					keyInfo.addField(decoder.readString(), decoder.readInt() - 1);
+				}
+				keys.put(keyInfo.getName().toLowerCase(), keyInfo);
+			}
+			return new TableData(tableInfo, fields, keys);
+		}
+		catch (SQLException e)
+		{
+			throw new IllegalStateException("Corrupt table " + tableName + " in schema snapshot " + file, e);
+		}
+	}
+
+	private class SnapshotModel extends SchemaModel
+	{
+		private NamedObjectList<TableInfo> tables;
+		private final Map<String, TableData> tableData = new HashMap<>();
+		private NamedObjectList<ViewInfo> views;
+		private NamedObjectList<ProcedureInfo> procedures;
+		private NamedObjectList<TriggerInfo> triggers;
+		private NamedObjectList<ForeignKeyInfo> foreignKeys;
+		private NamedObjectList<PartitionInfo> partitions;
+
+		SnapshotModel()
+		{
+			super(catalog, new NamedObjectList<>(), new HashMap<>(), new HashMap<>(), new NamedObjectList<>(),
+				new NamedObjectList<>());
+		}
+
+		@Override
+		synchronized NamedObjectList<TableInfo> getTables()
+		{
+			if (tables == null)
+			{
+				tables = new NamedObjectList<>();
+				for (TableRecord record : tableRecords)
+				{
+					tables.add(getTableData(record.name).tableInfo);
+				}
+			}
+			return tables;
+		}
+
+		@Override
+		NamedObjectList<FieldInfo> getFields(String tableName)
+		{
+			TableData data = getTableData(tableName);
+			return data != null ? data.fields : new NamedObjectList<>();
+		}
+
+		@Override
+		HashMap<String, KeyInfo> getKeys(String tableName)
+		{
+			TableData data = getTableData(tableName);
+			return data != null ? data.keys : new HashMap<>();
+		}
+
+		@Override
+		synchronized NamedObjectList<ViewInfo> getViews()
+		{
+			if (views == null)
+			{
+				views = new NamedObjectList<>();
+				for (int offset : viewRecords)
+				{
+					Decoder decoder = new Decoder(offset);
+					views.add(new ViewInfo(decoder.readString(), decoder.readString()));
+				}
+			}
+			return views;
+		}
+
+		@Override
+		synchronized NamedObjectList<ProcedureInfo> getProcedures()
+		{
+			if (procedures == null)
+			{
+				procedures = new NamedObjectList<>();
+				for (int offset : routineRecords)
+				{
+					Decoder decoder = new Decoder(offset);
+					procedures.add(new ProcedureInfo(decoder.readString(), decoder.readString(),
+						decoder.readString()));
+				}
+			}
+			return procedures;
+		}
+
+		@Override
+		synchronized NamedObjectList<TriggerInfo> getTriggers()
+		{
+			if (triggers == null)
+			{
+				triggers = new NamedObjectList<>();
+				for (int offset : triggerRecords)
+				{
+					Decoder decoder = new Decoder(offset);
+					triggers.add(new TriggerInfo(decoder.readString(), decoder.readString(), decoder.readString(),
+						decoder.readString(), decoder.readString()));
+				}
+			}
+			return triggers;
+		}
+
+		@Override
+		synchronized NamedObjectList<ForeignKeyInfo> getForeignKeys()
+		{
+			if (foreignKeys == null)
+			{
+				foreignKeys = new NamedObjectList<>();
+				for (int offset : foreignKeyRecords)
+				{
+					Decoder decoder = new Decoder(offset);
+					ForeignKeyInfo foreignKeyInfo = new ForeignKeyInfo(decoder.readString(), decoder.readString(),
+						decoder.readString(), decoder.readString(), decoder.readString(), decoder.readString());
+					for (int i = decoder.readInt(); i > 0; --i)
+					{
+						foreignKeyInfo.addColumn(decoder.readString(), decoder.readString());
+					}
+					foreignKeys.add(foreignKeyInfo);
+				}
+			}
+			return foreignKeys;
+		}
+
+		@Override
+		synchronized NamedObjectList<PartitionInfo> getPartitions()
+		{
+			if (partitions == null)
+			{
+				partitions = new NamedObjectList<>();
+				for (int offset : partitionRecords)
+				{
+					Decoder decoder = new Decoder(offset);
+					PartitionInfo partitionInfo = new PartitionInfo(decoder.readString(), decoder.readString(),
+						decoder.readString(), decoder.readString(), decoder.readString(), decoder.readInt());
+					for (int i = decoder.readInt(); i > 0; --i)
+					{
+						partitionInfo.addPartition(decoder.readString(), decoder.readString());
+					}
+					partitions.add(partitionInfo);
+				}
+			}
+			return partitions;
+		}
+
+		private synchronized TableData getTableData(String tableName)
+		{
+			// a table is decoded as a whole the first time one of its parts is needed
+			final String key = tableName.toLowerCase();
+			TableData data = tableData.get(key);
+			if (data == null)
+			{
+				TableRecord record = tableRecordsByName.get(key);
+				if (record == null)
+					return null;
+
+				data = readTable(record.offset);
+				tableData.put(key, data);
+			}
+			return data;
+		}
+	}
+
+	private static class TableRecord
+	{
+		final String name;
+		final int offset;
+
+		TableRecord(String name, int offset)
+		{
+			this.name = name;
+			this.offset = offset;
+		}
+	}
+
+	private static class TableData
+	{
+		final TableInfo tableInfo;
+		final NamedObjectList<FieldInfo> fields;
+		final HashMap<String, KeyInfo> keys;
+
+		TableData(TableInfo tableInfo, NamedObjectList<FieldInfo> fields, HashMap<String, KeyInfo> keys)
+		{
+			this.tableInfo = tableInfo;
+			this.fields = fields;
+			this.keys = keys;
+		}
+	}
+
+	private class Decoder
+	{
+		final ByteBuffer data;
+
+		Decoder(int offset)
+		{
+			data = buffer.duplicate();
+			data.position(offset);
+		}
+
+		int readInt()
+		{
+			long value = 0;
+			int shift = 0;
+			byte b;
+			do
+			{
+				b = data.get();
+				value |= (long)(b & 0x7F) << shift;
+				shift += 7;
+			}
+			while ((b & 0x80) != 0);
+			return (int)value;
+		}
+
+		String readString()
+		{
+			return getString(readInt());
+		}
+	}
+
+	private static class Encoder
+	{
+		private final Encoder strings;
+		private final HashMap<String, Integer> stringIds;
+		private final List<Integer> stringOffsets;
+		private byte[] data = new byte[4096];
+		private int size = 0;
+
+		Encoder()
+		{
+			this(null, null, null);
+		}
+
+		Encoder(Encoder strings, HashMap<String, Integer> stringIds, List<Integer> stringOffsets)
+		{
+			this.strings = strings;
+			this.stringIds = stringIds;
+			this.stringOffsets = stringOffsets;
+		}
+
+		int size()
+		{
+			return size;
+		}
+
+		void writeInt(int value)
+		{
+			// unsigned LEB128, the values written are never negative
+			long remaining = value & 0xFFFFFFFFL;
+			while (remaining >= 0x80)
+			{
+				writeByte((byte)((remaining & 0x7F) | 0x80));
+				remaining >>>= 7;
+			}
+			writeByte((byte)remaining);
+		}
+
+		void writeString(String value)
+		{
+			if (value == null)
+			{
+				writeInt(0);
+				return;
+			}
+
+			Integer id = stringIds.get(value);
+			if (id == null)
+			{
+				id = stringOffsets.size();
+				stringIds.put(value, id);
+				stringOffsets.add(strings.size());
+				byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				strings.writeInt(bytes.length);
+				strings.writeBytes(bytes);
+			}
+			writeInt(id + 1);
+		}
+
+		private void writeByte(byte value)
+		{
+			ensureCapacity(1);
+			data[size++] = value;
+		}
+
+		private void writeBytes(byte[] bytes)
+		{
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, data, size, bytes.length);
+			size += bytes.length;
+		}
+
+		private void ensureCapacity(int count)
+		{
+			if (size + count > data.length)
+				data = Arrays.copyOf(data, Math.max(data.length * 2, size + count));
+		}
+
+		ByteBuffer toByteBuffer()
+		{
+			return ByteBuffer.wrap(data, 0, size);
+		}
+	}
+}
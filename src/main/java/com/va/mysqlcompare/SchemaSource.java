@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+// a side of a compare which does not come from a live server
+public interface SchemaSource
+{
+	String getName();
+
+	SchemaModel readSchema() throws Exception;
+
+	// the defaults for create statements which leave out a collation, a source of read models ignores them
+	default void setCollations(Collations collations)
+	{
+	}
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// A directory tree of .sql files, typically one per object. The files are parsed on all cores and kept
+// parsed, after a change only the files touched since the last read are parsed again.
+public class SqlDirectorySource implements SchemaSource, AutoCloseable
+{
+	private static final Logger LOG = LoggerFactory.getLogger(SqlDirectorySource.class);
+
+	// editors write a file in several steps, the events of this period are handled together
+	private static final long SETTLE_MILLIS = 200;
+
+	private final File directory;
+	private final String databaseName;
+	// sorted by path, so objects defined twice are resolved the same way on every read
+	private final TreeMap<Path, DumpFileReader.Content> contents = new TreeMap<>();
+	private final Set<Path> dirtyFiles = new HashSet<>();
+	private boolean scanned = false;
+	private Collations collations = Collations.DEFAULT;
+	private WatchService watchService;
+	private Thread watchThread;
+
+	public SqlDirectorySource(File directory, String databaseName)
+	{
+		this.directory = directory;
+		this.databaseName = databaseName != null ? databaseName : directory.getName();
+	}
+
+	public File getDirectory()
+	{
+		return directory;
+	}
+
+	@Override
+	public String getName()
+	{
+		return databaseName + " (" + directory.getName() + ")";
+	}
+
+	@Override
+	public synchronized void setCollations(Collations collations)
+	{
+		// the files parsed so far resolved their collations with the previous defaults
+		if (!collations.equals(this.collations))
+			scanned = false;
+		this.collations = collations;
+	}
+
+	@Override
+	public synchronized SchemaModel readSchema() throws IOException
+	{
+		if (!scanned)
+		{
+			contents.clear();
+			dirtyFiles.clear();
+			try (Stream<Path> files = Files.walk(directory.toPath()))
+			{
+				dirtyFiles.addAll(files.filter(SqlDirectorySource::isSqlFile).collect(Collectors.toList()));
+			}
+			scanned = true;
+		}
+
+		if (!dirtyFiles.isEmpty())
+			parseFiles(new ArrayList<>(dirtyFiles));
+		dirtyFiles.clear();
+
+		return DumpFileReader.buildSchema(databaseName, contents.values());
+	}
+
+	private void parseFiles(List<Path> files) throws IOException
+	{
+		long start = System.nanoTime();
+		ExecutorService executor = Executors.newFixedThreadPool(
+			Math.max(1, Math.min(files.size(), Runtime.getRuntime().availableProcessors())));
+		try
+		{
+			List<Future<DumpFileReader.Content>> results = new ArrayList<>();
+			for (Path file : files)
+			{
+				results.add(executor.submit(() -> Files.isRegularFile(file) ? readContent(file) : null));
+			}
+
+			for (int i = 0; i < files.size(); ++i)
+			{
+				DumpFileReader.Content content = results.get(i).get();
+				if (content != null)
+					contents.put(files.get(i), content);
+				else
+					contents.remove(files.get(i));
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while parsing " + directory, e);
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof IOException)
+				throw (IOException)e.getCause();
+			throw new IOException("Cannot parse " + directory, e.getCause());
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+
+		LOG.info("Parsed {} files of {} in {} ms", files.size(), directory,
+			TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+	}
+
+	private DumpFileReader.Content readContent(Path file) throws IOException
+	{
+		DumpFileReader reader = new DumpFileReader(file.toFile(), null);
+		reader.setCollations(collations);
+		return reader.readContent();
+	}
+
+	public synchronized void watch(Runnable changeListener) throws IOException
+	{
+		if (watchService != null)
+			return;
+
+		watchService = FileSystems.getDefault().newWatchService();
+		Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+		registerTree(directory.toPath(), keys);
+
+		final WatchService service = watchService;
+		watchThread = new Thread(() ->
+		{
+			try
+			{
+				while (true)
+				{
+					WatchKey key = service.take();
+					boolean changed = false;
+					// collect what arrives while the file is still being written
+					while (key != null)
+					{
+						changed |= handleEvents(key, keys);
+						key = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+					}
+					if (changed)
+						changeListener.run();
+				}
+			}
+			catch (InterruptedException | ClosedWatchServiceException e)
+			{
+				// stopped by close()
+			}
+		}, "Watch " + directory);
+		watchThread.setDaemon(true);
+		watchThread.start();
+	}
+
+	private boolean handleEvents(WatchKey key, Map<WatchKey, Path> keys)
+	{
+		Path dir = keys.get(key);
+		boolean changed = false;
+		for (WatchEvent<?> event : key.pollEvents())
+		{
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+			{
+				LOG.info("Lost file events in {}, reading everything again", directory);
+				synchronized (this)
+				{
+					scanned = false;
+				}
+				changed = true;
+				continue;
+			}
+			if (dir == null)
+				continue;
+
+			Path path = dir.resolve((Path)event.context());
+			if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path))
+			{
+				try
+				{
+					// a new subdirectory may already contain files
+					registerTree(path, keys);
+					try (Stream<Path> files = Files.walk(path))
+					{
+						List<Path> sqlFiles = files.filter(SqlDirectorySource::isSqlFile).collect(Collectors.toList());
+						synchronized (this)
+						{
+							dirtyFiles.addAll(sqlFiles);
+						}
+						changed |= !sqlFiles.isEmpty();
+					}
+				}
+				catch (IOException e)
+				{
+					LOG.warn("Cannot watch " + path, e);
+				}
+			}
+			else
+			{
+				// a deleted file can only be recognized by its name
+				synchronized (this)
+				{
+					if (isSqlFile(path) || contents.containsKey(path))
+					{
+						dirtyFiles.add(path);
+						changed = true;
+					}
+				}
+			}
+		}
+		if (!key.reset())
+			keys.remove(key);
+		return changed;
+	}
+
+	private void registerTree(Path root, Map<WatchKey, Path> keys) throws IOException
+	{
+		try (Stream<Path> dirs = Files.walk(root))
+		{
+			for (Path dir : dirs.filter(Files::isDirectory).collect(Collectors.toList()))
+			{
+				WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+				keys.put(key, dir);
+			}
+		}
+	}
+
+	private static boolean isSqlFile(Path path)
+	{
+		return path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".sql") &&
+			!Files.isDirectory(path);
+	}
+
+	@Override
+	public synchronized void close() throws IOException
+	{
+		if (watchService != null)
+		{
+			watchThread.interrupt();
+			watchService.close();
+			watchService = null;
+			watchThread = null;
+		}
+	}
+}
@@ -15,12 +15,19 @@
  */
 package com.va.mysqlcompare;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.Objects;
+import java.util.function.Supplier;
 
-public class TableInfo implements NamedObject
+public class TableInfo implements NamedObject, Serializable
 {
+	private static final long serialVersionUID = 1L;
+
 	private final String name;
-	private final String createStatement;
+	private String createStatement;
+	private transient Supplier<String> createStatementSource;
 	private final String engine;
 	private final String charset;
 	private final String collation;
@@ -34,14 +41,26 @@ public class TableInfo implements NamedObject
 		this.collation = collation;
 	}
 
+	TableInfo(String name, Supplier<String> createStatementSource, String engine, String charset, String collation)
+	{
+		// the statement is only needed for rendering, so a snapshot decodes it on first use
+		this(name, (String)null, engine, charset, collation);
+		this.createStatementSource = createStatementSource;
+	}
+
 	@Override
 	public String getName()
 	{
 		return name;
 	}
 
-	public String getCreateStatement()
+	public synchronized String getCreateStatement()
 	{
+		if (createStatementSource != null)
+		{
+			createStatement = createStatementSource.get();
+			createStatementSource = null;
+		}
 		return createStatement;
 	}
 
@@ -60,6 +79,12 @@ public class TableInfo implements NamedObject
 		return collation;
 	}
 
+	private void writeObject(ObjectOutputStream stream) throws IOException
+	{
+		getCreateStatement();
+		stream.defaultWriteObject();
+	}
+
 	@Override
 	public int hashCode()
 	{
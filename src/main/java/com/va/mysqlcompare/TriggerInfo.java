@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+public class TriggerInfo implements NamedObject, Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private final String name;
+	private final String tableName;
+	private final String timing;
+	private final String event;
+	private final String body;
+	private transient String cleanBody = null;
+
+	public TriggerInfo(String name, String tableName, String timing, String event, String body)
+	{
+		this.name = name;
+		this.tableName = tableName;
+		this.timing = timing.toUpperCase();
+		this.event = event.toUpperCase();
+		this.body = body;
+	}
+
+	@Override
+	public String getName()
+	{
+		return name;
+	}
+
+	public String getTableName()
+	{
+		return tableName;
+	}
+
+	public String getTiming()
+	{
+		return timing;
+	}
+
+	public String getEvent()
+	{
+		return event;
+	}
+
+	public String getBody()
+	{
+		return body;
+	}
+
+	public String getCreateStatement()
+	{
+		return "CREATE TRIGGER `" + name + "` " + timing + " " + event + " ON `" + tableName + "` FOR EACH ROW " +
+			body;
+	}
+
+	private String getCleanBody()
+	{
+		if (cleanBody == null)
+		{
+			cleanBody = body
+				.replaceAll("[\\s]+", " ")
+				.trim()
+				.toLowerCase();
+		}
+
+		return cleanBody;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int hash = 7;
+		hash = 97 * hash + Objects.hashCode(this.name.toLowerCase());
+		hash = 29 * hash + Objects.hashCode(this.tableName.toLowerCase());
+		hash = 17 * hash + Objects.hashCode(this.timing);
+		hash = 13 * hash + Objects.hashCode(this.event);
+		hash = 11 * hash + Objects.hashCode(this.getCleanBody());
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (obj == null)
+		{
+			return false;
+		}
+		if (getClass() != obj.getClass())
+		{
+			return false;
+		}
+		final TriggerInfo other = (TriggerInfo)obj;
+		// names are looked up case insensitively, a trigger differing only in case is the same trigger
+		if (!this.name.equalsIgnoreCase(other.name))
+		{
+			return false;
+		}
+		if (!this.tableName.equalsIgnoreCase(other.tableName))
+		{
+			return false;
+		}
+		if (!Objects.equals(this.timing, other.timing))
+		{
+			return false;
+		}
+		if (!Objects.equals(this.event, other.event))
+		{
+			return false;
+		}
+		if (!Objects.equals(this.getCleanBody(), other.getCleanBody()))
+		{
+			return false;
+		}
+		return true;
+	}
+}
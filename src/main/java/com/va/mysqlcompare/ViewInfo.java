@@ -15,13 +15,16 @@
  */
 package com.va.mysqlcompare;
 
+import java.io.Serializable;
 import java.util.Objects;
 
-public class ViewInfo implements NamedObject
+public class ViewInfo implements NamedObject, Serializable
 {
+	private static final long serialVersionUID = 1L;
+
 	private final String name;
 	private final String createStatement;
-	private String cleanCreateStatement = null;
+	private transient String cleanCreateStatement = null;
 
 	public ViewInfo(String name, String createStatement)
 	{
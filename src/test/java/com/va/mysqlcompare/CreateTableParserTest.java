@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CreateTableParserTest
+{
+	private static final String CREATE_STATEMENT = "CREATE TABLE `orders` (\n"
+		+ "  `id` int(11) unsigned NOT NULL AUTO_INCREMENT,\n"
+		+ "  `customer` varchar(50) COLLATE utf8_bin DEFAULT NULL,\n"
+		+ "  `note` text,\n"
+		+ "  `state` enum('new','paid') NOT NULL DEFAULT 'new' COMMENT 'it''s, (state)',\n"
+		+ "  `created` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,\n"
+		+ "  `total` decimal(10,2) NOT NULL DEFAULT '0.00',\n"
+		+ "  `code` int(11) GENERATED ALWAYS AS ((`id` + 1)) STORED,\n"
+		+ "  PRIMARY KEY (`id`),\n"
+		+ "  UNIQUE KEY `code` (`code`),\n"
+		+ "  KEY `customer_note` (`customer`,`note`(10)),\n"
+		+ "  CONSTRAINT `fk_customer` FOREIGN KEY (`customer`) REFERENCES `customers` (`name`)\n"
+		+ ") ENGINE=InnoDB AUTO_INCREMENT=42 DEFAULT CHARSET=latin1 COLLATE=latin1_german1_ci";
+
+	public CreateTableParserTest()
+	{
+	}
+
+	@Test
+	public void testParseTableInfo()
+	{
+		TableInfo tableInfo = CreateTableParser.parseTableInfo("orders", CREATE_STATEMENT);
+
+		assertEquals("InnoDB", tableInfo.getEngine());
+		assertEquals("latin1", tableInfo.getCharset());
+		assertEquals("latin1_german1_ci", tableInfo.getCollation());
+		assertFalse(tableInfo.getCreateStatement().contains("AUTO_INCREMENT=42"));
+	}
+
+	@Test
+	public void testParseFields() throws SQLException
+	{
+		CreateTableParser.Result result = CreateTableParser.parse(CREATE_STATEMENT);
+		NamedObjectList<FieldInfo> fields = result.getFields();
+
+		assertEquals("orders", result.getTableInfo().getName());
+
+		FieldInfo id = fields.get("id");
+		assertEquals("int", id.getType());
+		assertEquals(11, id.getLength());
+		assertFalse(id.isNull());
+		assertTrue(id.isAutoIncrement());
+		assertNull(id.getCollation());
+		assertNull(id.getPreviousFieldName());
+
+		FieldInfo customer = fields.get("customer");
+		assertEquals("utf8_bin", customer.getCollation());
+		assertTrue(customer.isNull());
+		assertNull(customer.getDefault());
+		assertEquals("id", customer.getPreviousFieldName());
+
+		FieldInfo note = fields.get("note");
+		assertEquals("latin1_german1_ci", note.getCollation());
+
+		FieldInfo state = fields.get("state");
+		assertEquals("enum", state.getType());
+		assertEquals("new", state.getDefault());
+		assertFalse(state.isNull());
+
+		assertEquals("CURRENT_TIMESTAMP", fields.get("created").getDefault());
+		assertEquals("0.00", fields.get("total").getDefault());
+
+		FieldInfo code = fields.get("code");
+		assertEquals(FieldInfo.GenerationType.STORED, code.getGenerationType());
+		assertEquals("(`id` + 1)", code.getGenerationExpression());
+		assertTrue(code.isGenerationUniqueKey());
+
+		assertFalse(fields.contains("fk_customer"));
+	}
+
+	@Test
+	public void testParseKeys() throws SQLException
+	{
+		CreateTableParser.Result result = CreateTableParser.parse(CREATE_STATEMENT);
+
+		assertEquals(3, result.getKeys().size());
+
+		KeyInfo primary = result.getKeys().get("primary");
+		assertEquals("PRIMARY", primary.getName());
+		assertTrue(primary.isUnique());
+
+		assertTrue(result.getKeys().get("code").isUnique());
+
+		KeyInfo customerNote = result.getKeys().get("customer_note");
+		assertFalse(customerNote.isUnique());
+		assertEquals("orders", customerNote.getTableName());
+		assertEquals(2, customerNote.getFields().size());
+		assertEquals("note", customerNote.getFields().get(1).getName());
+		assertEquals(10, customerNote.getFields().get(1).getLength());
+		assertEquals(-1, customerNote.getFields().get(0).getLength());
+	}
+
+	@Test
+	public void testParseQualifiedName() throws SQLException
+	{
+		CreateTableParser.Result result = CreateTableParser.parse(
+			"CREATE TABLE IF NOT EXISTS `shop`.`items` (`id` int NOT NULL)");
+
+		assertEquals("items", result.getTableInfo().getName());
+		assertTrue(result.getFields().contains("id"));
+	}
+
+	@Test
+	public void testParseForeignKeys() throws SQLException
+	{
+		CreateTableParser.Result result = CreateTableParser.parse("CREATE TABLE `items` (\n" +
+			"  `id` int NOT NULL,\n" +
+			"  `order_id` int NOT NULL,\n" +
+			"  `product_id` int NOT NULL,\n" +
+			"  KEY `order_id` (`order_id`),\n" +
+			"  CONSTRAINT `items_order` FOREIGN KEY (`order_id`) REFERENCES `orders` (`id`) ON DELETE CASCADE,\n" +
+			"  FOREIGN KEY (`product_id`) REFERENCES `catalog`.`products` (`id`) ON UPDATE NO ACTION\n" +
+			") ENGINE=InnoDB");
+
+		assertEquals(3, result.getFields().size());
+		assertEquals(1, result.getKeys().size());
+		assertEquals(2, result.getForeignKeys().size());
+
+		ForeignKeyInfo order = result.getForeignKeys().get("items_order");
+		assertEquals("items", order.getTableName());
+		assertNull(order.getReferencedSchema());
+		assertEquals("orders", order.getReferencedTable());
+		assertEquals(Arrays.asList("order_id"), order.getColumns());
+		assertEquals(Arrays.asList("id"), order.getReferencedColumns());
+		assertEquals("CASCADE", order.getDeleteRule());
+		assertEquals("RESTRICT", order.getUpdateRule());
+
+		ForeignKeyInfo product = result.getForeignKeys().get("items_ibfk_1");
+		assertEquals("catalog", product.getReferencedSchema());
+		assertEquals("products", product.getReferencedTable());
+		assertEquals("RESTRICT", product.getUpdateRule());
+	}
+
+	@Test
+	public void testParsePartitions() throws SQLException
+	{
+		CreateTableParser.Result result = CreateTableParser.parse("CREATE TABLE `events` (\n" +
+			"  `id` int NOT NULL,\n" +
+			"  `created` date NOT NULL\n" +
+			") ENGINE=MyISAM DEFAULT CHARSET=latin1\n" +
+			"/*!50100 PARTITION BY RANGE (year(`created`))\n" +
+			"SUBPARTITION BY HASH (month(`created`))\n" +
+			"SUBPARTITIONS 2\n" +
+			"(PARTITION p2019 VALUES LESS THAN (2020) ENGINE = MyISAM,\n" +
+			" PARTITION pmax VALUES LESS THAN MAXVALUE ENGINE = MyISAM) */");
+
+		assertEquals("MyISAM", result.getTableInfo().getEngine());
+		assertEquals("latin1", result.getTableInfo().getCharset());
+
+		PartitionInfo partitionInfo = result.getPartitionInfo();
+		assertEquals("events", partitionInfo.getTableName());
+		assertEquals("RANGE", partitionInfo.getMethod());
+		assertEquals("HASH", partitionInfo.getSubpartitionMethod());
+		assertEquals(2, partitionInfo.getSubpartitionCount());
+		assertEquals(2, partitionInfo.getPartitions().size());
+		assertEquals("2020", partitionInfo.getPartitions().get(0).getDescription());
+		assertEquals("MAXVALUE", partitionInfo.getPartitions().get(1).getDescription());
+
+		// information_schema.PARTITIONS reports the same scheme without the optional quoting
+		PartitionInfo fromServer = new PartitionInfo("events", "RANGE", "year(created)", "HASH", "month(created)", 2);
+		fromServer.addPartition("p2019", "2020");
+		fromServer.addPartition("pmax", "MAXVALUE");
+		assertEquals(fromServer, partitionInfo);
+
+		PartitionInfo hashed = CreateTableParser.parse("CREATE TABLE `t` (`id` int NOT NULL) ENGINE=InnoDB\n" +
+			"/*!50100 PARTITION BY LINEAR KEY ALGORITHM=2 (`id`)\nPARTITIONS 4 */").getPartitionInfo();
+		assertEquals("LINEAR KEY", hashed.getMethod());
+		assertEquals(4, hashed.getPartitions().size());
+		assertEquals("p3", hashed.getPartitions().get(3).getName());
+
+		assertNull(CreateTableParser.parse(CREATE_STATEMENT).getPartitionInfo());
+	}
+
+	@Test
+	public void testParseBitLiterals() throws SQLException
+	{
+		CreateTableParser.Result result = CreateTableParser.parse("CREATE TABLE `flags` (\n" +
+			"  `active` bit(1) NOT NULL DEFAULT b'0',\n" +
+			"  `mask` binary(1) DEFAULT x'0F',\n" +
+			"  `b` varchar(8) DEFAULT 'b'\n" +
+			") ENGINE=InnoDB");
+
+		assertEquals("b'0'", result.getFields().get("active").getDefault());
+		assertEquals("x'0F'", result.getFields().get("mask").getDefault());
+		assertEquals("b", result.getFields().get("b").getDefault());
+	}
+
+	@Test
+	public void testDefaultCollations() throws SQLException
+	{
+		// SHOW CREATE TABLE leaves out the collations which are the defaults of their character set
+		String statement = "CREATE TABLE `t` (\n"
+			+ "  `a` varchar(10) DEFAULT NULL,\n"
+			+ "  `b` varchar(10) CHARACTER SET utf8mb4 DEFAULT NULL,\n"
+			+ "  `c` int(11) NOT NULL\n"
+			+ ") ENGINE=InnoDB DEFAULT CHARSET=latin1";
+
+		CreateTableParser.Result result = CreateTableParser.parse(statement);
+		assertEquals(new SchemaCatalog.Entry("t", SchemaCatalog.ObjectType.TABLE, "InnoDB", "latin1_swedish_ci",
+			null, null, null, null).toTableInfo(), result.getTableInfo());
+		assertEquals(column("t", "a", "varchar(10)", "latin1_swedish_ci", "YES", null), result.getFields().get("a"));
+		assertEquals(column("t", "b", "varchar(10)", "utf8mb4_general_ci", "YES", "a"), result.getFields().get("b"));
+		assertEquals(column("t", "c", "int(11)", null, "NO", "b"), result.getFields().get("c"));
+
+		// as read from information_schema.COLLATIONS of an 8.0 server
+		HashMap<String, String> defaults = new HashMap<>();
+		defaults.put("latin1", "latin1_swedish_ci");
+		defaults.put("utf8mb4", "utf8mb4_0900_ai_ci");
+		result = CreateTableParser.parse(statement, new Collations(defaults));
+		assertEquals(column("t", "b", "varchar(10)", "utf8mb4_0900_ai_ci", "YES", "a"), result.getFields().get("b"));
+	}
+
+	// a column as the bulk reader builds it from a row of information_schema.COLUMNS
+	static FieldInfo column(String tableName, String name, String type, String collation, String nullable,
+		String previousFieldName) throws SQLException
+	{
+		HashMap<String, String> row = new HashMap<>();
+		row.put("COLUMN_NAME", name);
+		row.put("COLUMN_TYPE", type);
+		row.put("COLLATION_NAME", collation);
+		row.put("IS_NULLABLE", nullable);
+		row.put("EXTRA", "");
+		row.put("COLUMN_KEY", "");
+		ResultSet result = (ResultSet)Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+			new Class<?>[] { ResultSet.class }, (proxy, method, args) -> row.get((String)args[0]));
+		return new FieldInfo(tableName, result, previousFieldName);
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.HashMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DumpFileReaderTest
+{
+	private static final String DUMP = "-- MySQL dump 10.13  Distrib 5.7.30, for Linux (x86_64)\n" +
+		"/*!40101 SET @OLD_CHARACTER_SET_CLIENT=@@CHARACTER_SET_CLIENT */;\n" +
+		"/*!40101 SET NAMES utf8 */;\n" +
+		"\n" +
+		"CREATE DATABASE /*!32312 IF NOT EXISTS*/ `shop` /*!40100 DEFAULT CHARACTER SET utf8mb4 */;\n" +
+		"USE `shop`;\n" +
+		"\n" +
+		"--\n" +
+		"-- Table structure for table `orders`\n" +
+		"--\n" +
+		"\n" +
+		"DROP TABLE IF EXISTS `orders`;\n" +
+		"/*!40101 SET @saved_cs_client     = @@character_set_client */;\n" +
+		"CREATE TABLE `orders` (\n" +
+		"  `id` int(11) NOT NULL AUTO_INCREMENT,\n" +
+		"  `note` varchar(64) DEFAULT 'it''s; -- not a comment',\n" +
+		"  PRIMARY KEY (`id`)\n" +
+		") ENGINE=InnoDB AUTO_INCREMENT=42 DEFAULT CHARSET=utf8mb4;\n" +
+		"\n" +
+		"INSERT INTO `orders` VALUES (1,'CREATE TABLE `fake` (`a` int);'),(2,'x');\n" +
+		"\n" +
+		"/*!50003 SET @saved_cs_client      = @@character_set_client */ ;\n" +
+		"DELIMITER ;;\n" +
+		"/*!50003 CREATE*/ /*!50017 DEFINER=`root`@`localhost`*/ /*!50003 TRIGGER `orders_bi` BEFORE INSERT ON `orders` FOR EACH ROW BEGIN\n" +
+		"  SET NEW.note = 'a;b';\n" +
+		"END */;;\n" +
+		"DELIMITER ;\n" +
+		"\n" +
+		"--\n" +
+		"-- Temporary table structure for view `big_orders`\n" +
+		"--\n" +
+		"\n" +
+		"SET @saved_cs_client     = @@character_set_client;\n" +
+		"/*!50001 CREATE VIEW `big_orders` AS SELECT \n" +
+		" 1 AS `id`*/;\n" +
+		"\n" +
+		"/*!50001 DROP VIEW IF EXISTS `big_orders`*/;\n" +
+		"/*!50001 SET @saved_cs_client          = @@character_set_client */;\n" +
+		"/*!50001 CREATE ALGORITHM=UNDEFINED */\n" +
+		"/*!50013 DEFINER=`root`@`localhost` SQL SECURITY DEFINER */\n" +
+		"/*!50001 VIEW `big_orders` AS select `orders`.`id` AS `id` from `orders` where (`orders`.`id` > 100) */;\n" +
+		"\n" +
+		"DELIMITER ;;\n" +
+		"CREATE DEFINER=`root`@`localhost` PROCEDURE `cleanup`(IN days INT)\n" +
+		"BEGIN\n" +
+		"  DELETE FROM orders WHERE id < days;\n" +
+		"  # a comment with a ; in it\n" +
+		"END ;;\n" +
+		"DELIMITER ;\n" +
+		"\n" +
+		"USE `other`;\n" +
+		"CREATE TABLE `ignored` (`a` int(11) DEFAULT NULL);\n";
+
+	@TempDir
+	File directory;
+
+	public DumpFileReaderTest()
+	{
+	}
+
+	@Test
+	public void testDump() throws IOException
+	{
+		File file = new File(directory, "shop.sql");
+		Files.write(file.toPath(), DUMP.getBytes(StandardCharsets.UTF_8));
+
+		SchemaModel schema = new DumpFileReader(file, "shop").readSchema();
+		assertEquals("shop", schema.getDatabaseName());
+
+		assertEquals(1, schema.getTables().size());
+		TableInfo orders = schema.getTables().get("orders");
+		assertEquals("InnoDB", orders.getEngine());
+		assertEquals(2, schema.getFields("orders").size());
+		assertEquals("it's; -- not a comment", schema.getFields("orders").get("note").getDefault());
+		assertTrue(schema.getKeys("orders").containsKey("primary"));
+
+		assertEquals(1, schema.getViews().size());
+		assertTrue(schema.getViews().get("big_orders").getCreateStatement().contains("where (`orders`.`id` > 100)"));
+
+		TriggerInfo trigger = schema.getTriggers().get("orders_bi");
+		assertEquals("orders", trigger.getTableName());
+		assertEquals("BEFORE", trigger.getTiming());
+		assertEquals("INSERT", trigger.getEvent());
+		assertEquals("BEGIN\n  SET NEW.note = 'a;b';\nEND", trigger.getBody());
+
+		ProcedureInfo cleanup = schema.getProcedures().get("cleanup");
+		assertEquals("PROCEDURE", cleanup.getType());
+		assertTrue(cleanup.getCreateStatement().endsWith("END"));
+		assertTrue(cleanup.getCreateStatement().contains("DELETE FROM orders WHERE id < days;"));
+	}
+
+	@Test
+	public void testAllDatabases() throws IOException
+	{
+		File file = new File(directory, "all.sql");
+		Files.write(file.toPath(), DUMP.getBytes(StandardCharsets.UTF_8));
+
+		SchemaModel schema = new DumpFileReader(file, null).readSchema();
+		assertEquals(2, schema.getTables().size());
+		assertTrue(schema.getTables().contains("ignored"));
+	}
+
+	@Test
+	public void testFilter() throws IOException
+	{
+		File file = new File(directory, "shop.sql");
+		Files.write(file.toPath(), DUMP.getBytes(StandardCharsets.UTF_8));
+
+		SchemaModel schema = new DumpFileReader(file, "shop").readSchema()
+			.filter(ObjectFilter.parse("exclude table orders\nexclude procedure *\n"));
+		assertEquals(0, schema.getTables().size());
+		assertEquals(0, schema.getTriggers().size());
+		assertEquals(0, schema.getProcedures().size());
+		assertEquals(1, schema.getViews().size());
+		assertEquals(0, schema.getCatalog().getTables().size());
+		assertEquals(1, schema.getCatalog().getViews().size());
+	}
+
+	@Test
+	public void testServerCollations() throws IOException, SQLException
+	{
+		File file = new File(directory, "latin.sql");
+		Files.write(file.toPath(), ("CREATE TABLE `customers` (\n"
+			+ "  `name` varchar(50) NOT NULL,\n"
+			+ "  `mail` varchar(100) CHARACTER SET utf8mb4 DEFAULT NULL\n"
+			+ ") ENGINE=InnoDB DEFAULT CHARSET=latin1;\n").getBytes(StandardCharsets.UTF_8));
+
+		// the defaults of an 8.0 server the dump is compared against
+		HashMap<String, String> defaults = new HashMap<>();
+		defaults.put("latin1", "latin1_swedish_ci");
+		defaults.put("utf8mb4", "utf8mb4_0900_ai_ci");
+		DumpFileReader reader = new DumpFileReader(file, null);
+		reader.setCollations(new Collations(defaults));
+		SchemaModel schema = reader.readSchema();
+
+		// equal to what the bulk reader builds from the rows of the server
+		assertEquals(new SchemaCatalog.Entry("customers", SchemaCatalog.ObjectType.TABLE, "InnoDB",
+			"latin1_swedish_ci", null, null, null, null).toTableInfo(), schema.getTables().get("customers"));
+		assertEquals(CreateTableParserTest.column("customers", "name", "varchar(50)", "latin1_swedish_ci", "NO", null),
+			schema.getFields("customers").get("name"));
+		assertEquals(CreateTableParserTest.column("customers", "mail", "varchar(100)", "utf8mb4_0900_ai_ci", "YES",
+			"name"), schema.getFields("customers").get("mail"));
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FetchPlannerTest
+{
+	private static final long MS = 1000000;
+
+	public FetchPlannerTest()
+	{
+	}
+
+	@Test
+	public void testSlowInformationSchemaUsesBatches()
+	{
+		// 5.7 style: scanning information_schema opens every table of the schema
+		FetchPlanner planner = new FetchPlanner("5.7.30-log", 1 * MS, 2 * MS, 3000 * MS, 50, 4);
+
+		assertFalse(planner.isDataDictionary());
+		assertEquals(FetchPlanner.Strategy.BATCHED, planner.plan("table children", 1000, 2, 2));
+	}
+
+	@Test
+	public void testFastInformationSchemaUsesBulk()
+	{
+		FetchPlanner planner = new FetchPlanner("8.0.21", 1 * MS, 2 * MS, 40 * MS, 50, 4);
+
+		assertTrue(planner.isDataDictionary());
+		assertEquals(FetchPlanner.Strategy.BULK, planner.plan("table children", 1000, 2, 2));
+	}
+
+	@Test
+	public void testObserveRecalibrates()
+	{
+		FetchPlanner planner = new FetchPlanner("8.0.21", 1 * MS, 1 * MS, 400 * MS, 50, 4);
+
+		assertEquals(FetchPlanner.Strategy.BATCHED, planner.plan("table children", 1000, 2, 2));
+
+		double expected = planner.estimate(FetchPlanner.Strategy.BATCHED, 100, 2, 2);
+		assertFalse(planner.observe("table children", FetchPlanner.Strategy.BATCHED, 100, 2, 2, (long)expected));
+		assertTrue(planner.observe("table children", FetchPlanner.Strategy.BATCHED, 100, 2, 2, (long)(expected * 200)));
+
+		assertEquals(FetchPlanner.Strategy.BULK, planner.plan("table children", 1000, 2, 2));
+	}
+
+	@Test
+	public void testServerVersionPrior()
+	{
+		// the same measured costs, only the kind of information_schema decides
+		FetchPlanner fileBased = new FetchPlanner("5.7.30-log", 1 * MS, 1 * MS, 5 * MS, 50, 4);
+		FetchPlanner dataDictionary = new FetchPlanner("8.0.21", 1 * MS, 1 * MS, 5 * MS, 50, 4);
+		assertEquals(fileBased.estimate(FetchPlanner.Strategy.BULK, 1000, 2, 2),
+			dataDictionary.estimate(FetchPlanner.Strategy.BULK, 1000, 2, 2));
+
+		assertEquals(FetchPlanner.Strategy.BATCHED, fileBased.plan("table children", 1000, 2, 2));
+		assertEquals(FetchPlanner.Strategy.BULK, dataDictionary.plan("table children", 1000, 2, 2));
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetadataCacheTest
+{
+	private static final Timestamp CREATED = Timestamp.valueOf("2020-05-01 10:00:00");
+	private static final Timestamp ALTERED = Timestamp.valueOf("2020-05-02 10:00:00");
+
+	@TempDir
+	File directory;
+
+	public MetadataCacheTest()
+	{
+	}
+
+	@Test
+	public void testRoundTrip() throws SQLException
+	{
+		SchemaCatalog.Entry table = tableEntry(CREATED);
+		SchemaCatalog.Entry routine = routineEntry(ALTERED);
+		CreateTableParser.Result parsed = CreateTableParser.parse("CREATE TABLE `users` (\n" +
+			"  `id` int(11) NOT NULL AUTO_INCREMENT,\n" +
+			"  `name` varchar(64) DEFAULT NULL,\n" +
+			"  PRIMARY KEY (`id`)\n" +
+			") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+
+		MetadataCache cache = new MetadataCache(directory);
+		MetadataCache.SchemaEntry entry = cache.load("root@db:3306", "shop");
+		assertNull(entry.getTable(table, "abc"));
+		entry.putTable(table, "abc", parsed.getTableInfo(), parsed.getFields(), parsed.getKeys());
+		entry.putRoutine(routine, new ProcedureInfo("refresh", "PROCEDURE", "CREATE PROCEDURE `refresh`() BEGIN END"));
+		assertTrue(entry.isModified());
+		cache.save(entry);
+		assertFalse(entry.isModified());
+
+		MetadataCache.SchemaEntry loaded = new MetadataCache(directory).load("root@db:3306", "SHOP");
+		MetadataCache.CachedTable cached = loaded.getTable(table, "abc");
+		assertNotNull(cached);
+		assertEquals(parsed.getTableInfo(), cached.getTableInfo());
+		assertEquals(parsed.getFields().get("name"), cached.getFields().get("name"));
+		assertEquals(parsed.getKeys().get("primary"), cached.getKeys().get("primary"));
+		assertNotNull(loaded.getRoutine(routine));
+
+		assertNull(new MetadataCache(directory).load("root@other:3306", "shop").getTable(table, "abc"));
+	}
+
+	@Test
+	public void testInvalidation() throws SQLException
+	{
+		SchemaCatalog.Entry table = tableEntry(CREATED);
+		CreateTableParser.Result parsed = CreateTableParser.parse("CREATE TABLE `users` (`id` int(11) NOT NULL)");
+
+		MetadataCache.SchemaEntry entry = new MetadataCache(directory).load("root@db:3306", "shop");
+		entry.putTable(table, "abc", parsed.getTableInfo(), parsed.getFields(), parsed.getKeys());
+		entry.putRoutine(routineEntry(ALTERED), new ProcedureInfo("refresh", "PROCEDURE", "CREATE PROCEDURE"));
+
+		assertNull(entry.getTable(table, "def"));
+		assertNull(entry.getTable(tableEntry(ALTERED), "abc"));
+		assertNull(entry.getRoutine(routineEntry(Timestamp.valueOf("2020-05-03 10:00:00"))));
+
+		SchemaCatalog catalog = new SchemaCatalog("shop");
+		catalog.add(routineEntry(ALTERED));
+		entry.retain(catalog);
+		assertNull(entry.getTable(table, "abc"));
+		assertNotNull(entry.getRoutine(routineEntry(ALTERED)));
+	}
+
+	private static SchemaCatalog.Entry tableEntry(Timestamp createTime)
+	{
+		return new SchemaCatalog.Entry("users", SchemaCatalog.ObjectType.TABLE, "InnoDB", "utf8mb4_general_ci",
+			createTime, null, 10L, 16384L);
+	}
+
+	private static SchemaCatalog.Entry routineEntry(Timestamp lastAltered)
+	{
+		return new SchemaCatalog.Entry("refresh", SchemaCatalog.ObjectType.PROCEDURE, null, null, CREATED,
+			lastAltered, null, null);
+	}
+}
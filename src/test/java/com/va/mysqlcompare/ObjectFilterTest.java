@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+import com.va.mysqlcompare.SchemaCatalog.ObjectType;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ObjectFilterTest
+{
+	private static final String SPEC = "# ignored tables\n"
+		+ "exclude table tmp_*\n"
+		+ "exclude * /_old$/\n"
+		+ "include procedure report_?\n";
+
+	public ObjectFilterTest()
+	{
+	}
+
+	@Test
+	public void testAccepts()
+	{
+		ObjectFilter filter = ObjectFilter.parse(SPEC);
+
+		assertTrue(filter.accepts(ObjectType.TABLE, "orders"));
+		assertFalse(filter.accepts(ObjectType.TABLE, "tmp_orders"));
+		assertFalse(filter.accepts(ObjectType.TABLE, "TMP_Orders"));
+		assertTrue(filter.accepts(ObjectType.VIEW, "tmp_orders"));
+		assertFalse(filter.accepts(ObjectType.VIEW, "orders_old"));
+		assertTrue(filter.accepts(ObjectType.PROCEDURE, "report_1"));
+		assertFalse(filter.accepts(ObjectType.PROCEDURE, "report_10"));
+		assertTrue(filter.accepts(ObjectType.FUNCTION, "report_10"));
+	}
+
+	@Test
+	public void testToSql()
+	{
+		ObjectFilter filter = ObjectFilter.parse(SPEC);
+
+		ObjectFilter.SqlCondition tables = filter.toSql("TABLE_NAME", ObjectType.TABLE);
+		assertEquals(" AND LOWER(TABLE_NAME) NOT LIKE ? ESCAPE '!'", tables.getClause());
+		assertEquals(Arrays.asList("tmp!_%"), tables.getParameters());
+
+		// the table rule cannot be applied to a query which also returns views
+		assertEquals("", filter.toSql("TABLE_NAME", ObjectType.TABLE, ObjectType.VIEW).getClause());
+
+		ObjectFilter.SqlCondition procedures = filter.toSql("ROUTINE_NAME", ObjectType.PROCEDURE);
+		assertEquals(" AND (LOWER(ROUTINE_NAME) LIKE ? ESCAPE '!')", procedures.getClause());
+		assertEquals(Arrays.asList("report!__"), procedures.getParameters());
+	}
+
+	@Test
+	public void testInvalidRule()
+	{
+		assertThrows(IllegalArgumentException.class, () -> ObjectFilter.parse("skip table x"));
+		assertThrows(IllegalArgumentException.class, () -> ObjectFilter.parse("exclude index x"));
+	}
+}
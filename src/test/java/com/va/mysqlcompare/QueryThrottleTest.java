@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+import java.sql.SQLException;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryThrottleTest
+{
+	private static final long MS = 1000000;
+
+	public QueryThrottleTest()
+	{
+	}
+
+	@Test
+	public void testRateLimit() throws SQLException
+	{
+		QueryThrottle throttle = new QueryThrottle("test", 100, 0);
+
+		long start = System.nanoTime();
+		for (int i = 0; i < 6; ++i)
+		{
+			throttle.acquire(1);
+			throttle.release(1, MS);
+		}
+
+		// the first query runs at once, the other five wait 10 ms each
+		assertTrue(System.nanoTime() - start >= 50 * MS);
+	}
+
+	@Test
+	public void testBackoff()
+	{
+		QueryThrottle throttle = new QueryThrottle("test", 0, 0);
+
+		for (int i = 0; i < QueryThrottle.WARMUP_QUERIES; ++i)
+		{
+			throttle.observe(2 * MS);
+		}
+		assertEquals(0, throttle.getBackoffNanos());
+
+		for (int i = 0; i < 20; ++i)
+		{
+			throttle.observe(20 * MS);
+		}
+		assertTrue(throttle.getBackoffNanos() >= 2 * MS);
+		assertTrue(throttle.getBackoffNanos() <= QueryThrottle.MAX_BACKOFF_NANOS);
+
+		for (int i = 0; i < 40; ++i)
+		{
+			throttle.observe(2 * MS);
+		}
+		assertEquals(0, throttle.getBackoffNanos());
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SchemaSnapshotTest
+{
+	private static final String CREATE_ORDERS = "CREATE TABLE `orders` (\n" +
+		"  `id` int(11) NOT NULL AUTO_INCREMENT,\n" +
+		"  `customer` varchar(64) COLLATE utf8mb4_bin DEFAULT 'n/a',\n" +
+		"  `total` decimal(10,2) NOT NULL,\n" +
+		"  PRIMARY KEY (`id`),\n" +
+		"  KEY `customer` (`customer`(10))\n" +
+		") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci";
+
+	@TempDir
+	File directory;
+
+	public SchemaSnapshotTest()
+	{
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception
+	{
+		SchemaModel schema = createSchema();
+		File file = new File(directory, "shop.snapshot");
+		SchemaSnapshot.write(schema, file);
+
+		SchemaSnapshot snapshot = SchemaSnapshot.open(file);
+		assertEquals("shop", snapshot.getCatalog().getDatabaseName());
+		assertEquals(1, snapshot.getCatalog().getTables().size());
+		assertEquals(SchemaCatalog.ObjectType.FUNCTION, snapshot.getCatalog().getRoutines().get("total").getType());
+
+		SchemaModel loaded = snapshot.readSchema();
+		TableInfo tableInfo = loaded.getTables().get("orders");
+		assertEquals(schema.getTables().get("orders"), tableInfo);
+		assertEquals(CREATE_ORDERS, tableInfo.getCreateStatement());
+
+		for (FieldInfo fieldInfo : schema.getFields("orders"))
+		{
+			FieldInfo loadedField = loaded.getFields("ORDERS").get(fieldInfo.getName());
+			assertEquals(fieldInfo, loadedField);
+			assertEquals(fieldInfo.getPreviousFieldName(), loadedField.getPreviousFieldName());
+			assertEquals(fieldInfo.isAutoIncrement(), loadedField.isAutoIncrement());
+		}
+		assertEquals(schema.getKeys("orders"), loaded.getKeys("orders"));
+		assertEquals(-1, loaded.getKeys("orders").get("primary").getFields().get(0).getLength());
+
+		assertEquals(schema.getViews().get("big_orders"), loaded.getViews().get("big_orders"));
+		assertEquals(schema.getProcedures().get("total"), loaded.getProcedures().get("total"));
+		assertEquals(schema.getTriggers().get("orders_bu"), loaded.getTriggers().get("orders_bu"));
+		ForeignKeyInfo customer = loaded.getForeignKeys().get("orders_customer");
+		assertEquals(schema.getForeignKeys().get("orders_customer"), customer);
+		assertNull(customer.getReferencedSchema());
+		assertEquals("RESTRICT", customer.getUpdateRule());
+		PartitionInfo byYear = loaded.getPartitions().get("orders");
+		assertEquals(schema.getPartitions().get("orders"), byYear);
+		assertEquals("MAXVALUE", byYear.getPartitions().get(1).getDescription());
+		assertNull(byYear.getSubpartitionMethod());
+		assertEquals(0, loaded.getFields("missing").size());
+	}
+
+	@Test
+	public void testInvalidFile() throws IOException
+	{
+		File file = new File(directory, "other.snapshot");
+		Files.write(file.toPath(), "not a snapshot at all, just some text".getBytes());
+		assertThrows(IOException.class, () -> SchemaSnapshot.open(file));
+	}
+
+	private static SchemaModel createSchema() throws Exception
+	{
+		CreateTableParser.Result parsed = CreateTableParser.parse(CREATE_ORDERS);
+
+		SchemaCatalog catalog = new SchemaCatalog("shop");
+		NamedObjectList<TableInfo> tables = new NamedObjectList<>();
+		tables.add(parsed.getTableInfo());
+		HashMap<String, NamedObjectList<FieldInfo>> tableFields = new HashMap<>();
+		tableFields.put("orders", parsed.getFields());
+		HashMap<String, HashMap<String, KeyInfo>> tableKeys = new HashMap<>();
+		tableKeys.put("orders", parsed.getKeys());
+
+		NamedObjectList<ViewInfo> views = new NamedObjectList<>();
+		views.add(new ViewInfo("big_orders", "CREATE VIEW `big_orders` AS SELECT * FROM `orders` WHERE total > 100"));
+		NamedObjectList<ProcedureInfo> procedures = new NamedObjectList<>();
+		procedures.add(new ProcedureInfo("total", "FUNCTION",
+			"CREATE FUNCTION `total`() RETURNS decimal(10,2) RETURN (SELECT SUM(total) FROM orders)"));
+
+		NamedObjectList<TriggerInfo> triggers = new NamedObjectList<>();
+		triggers.add(new TriggerInfo("orders_bu", "orders", "BEFORE", "UPDATE", "SET NEW.total = ROUND(NEW.total, 2)"));
+
+		NamedObjectList<ForeignKeyInfo> foreignKeys = new NamedObjectList<>();
+		ForeignKeyInfo customer = new ForeignKeyInfo("orders", "orders_customer", null, "customers", null, "CASCADE");
+		customer.addColumn("customer_id", "id");
+		foreignKeys.add(customer);
+
+		NamedObjectList<PartitionInfo> partitions = new NamedObjectList<>();
+		PartitionInfo byYear = new PartitionInfo("orders", "RANGE", "year(`created`)", null, null, 0);
+		byYear.addPartition("p2019", "2020");
+		byYear.addPartition("pmax", "MAXVALUE");
+		partitions.add(byYear);
+
+		return new SchemaModel(catalog, tables, tableFields, tableKeys, views, procedures, triggers, foreignKeys,
+			partitions);
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2020 Daniel Volk <mail@volkarts.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.va.mysqlcompare;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.HashMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SqlDirectorySourceTest
+{
+	@TempDir
+	File directory;
+
+	public SqlDirectorySourceTest()
+	{
+	}
+
+	@Test
+	public void testReadAndChange() throws IOException
+	{
+		write("tables/orders.sql", "CREATE TABLE `orders` (\n  `id` int(11) NOT NULL,\n  PRIMARY KEY (`id`)\n) ENGINE=InnoDB;\n");
+		write("tables/customers.sql", "CREATE TABLE `customers` (\n  `id` int(11) NOT NULL\n) ENGINE=InnoDB;\n");
+		write("views/big_orders.sql", "CREATE VIEW `big_orders` AS SELECT * FROM `orders` WHERE id > 100;\n");
+		write("README.txt", "CREATE TABLE `not_sql` (`a` int);\n");
+
+		try (SqlDirectorySource source = new SqlDirectorySource(directory, "shop"))
+		{
+			SchemaModel schema = source.readSchema();
+			assertEquals("shop", schema.getDatabaseName());
+			assertEquals(2, schema.getTables().size());
+			assertEquals(1, schema.getFields("orders").size());
+			assertEquals(1, schema.getViews().size());
+
+			// unchanged files keep their parsed content
+			assertSame(schema.getTables().get("customers"), source.readSchema().getTables().get("customers"));
+		}
+	}
+
+	@Test
+	public void testWatch() throws Exception
+	{
+		write("orders.sql", "CREATE TABLE `orders` (\n  `id` int(11) NOT NULL\n) ENGINE=InnoDB;\n");
+		write("customers.sql", "CREATE TABLE `customers` (\n  `id` int(11) NOT NULL\n) ENGINE=InnoDB;\n");
+
+		try (SqlDirectorySource source = new SqlDirectorySource(directory, "shop"))
+		{
+			SchemaModel schema = source.readSchema();
+
+			Object changed = new Object();
+			boolean[] notified = { false };
+			source.watch(() ->
+			{
+				synchronized (changed)
+				{
+					notified[0] = true;
+					changed.notifyAll();
+				}
+			});
+
+			write("orders.sql", "CREATE TABLE `orders` (\n  `id` int(11) NOT NULL,\n  `total` int(11)\n) ENGINE=InnoDB;\n");
+			Files.delete(new File(directory, "customers.sql").toPath());
+			long end = System.currentTimeMillis() + 30000;
+			synchronized (changed)
+			{
+				while (!notified[0] && System.currentTimeMillis() < end)
+				{
+					changed.wait(1000);
+				}
+			}
+			assertTrue(notified[0]);
+
+			// the two changes may be reported separately
+			SchemaModel changedSchema = source.readSchema();
+			while (changedSchema.getTables().size() != 1 && System.currentTimeMillis() < end)
+			{
+				Thread.sleep(100);
+				changedSchema = source.readSchema();
+			}
+			assertEquals(1, changedSchema.getTables().size());
+			assertEquals(2, changedSchema.getFields("orders").size());
+			assertEquals(1, schema.getFields("orders").size());
+		}
+	}
+
+	@Test
+	public void testServerCollations() throws IOException, SQLException
+	{
+		write("customers.sql", "CREATE TABLE `customers` (\n  `name` varchar(50) NOT NULL\n) ENGINE=InnoDB "
+			+ "DEFAULT CHARSET=latin1;\n");
+
+		try (SqlDirectorySource source = new SqlDirectorySource(directory, "shop"))
+		{
+			assertEquals("latin1_swedish_ci", source.readSchema().getFields("customers").get("name").getCollation());
+
+			// the files already parsed are parsed again with the defaults of the server compared against
+			HashMap<String, String> defaults = new HashMap<>();
+			defaults.put("latin1", "latin1_german1_ci");
+			source.setCollations(new Collations(defaults));
+			SchemaModel schema = source.readSchema();
+			assertEquals(CreateTableParserTest.column("customers", "name", "varchar(50)", "latin1_german1_ci", "NO",
+				null), schema.getFields("customers").get("name"));
+		}
+	}
+
+	private void write(String name, String content) throws IOException
+	{
+		File file = new File(directory, name);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+}